@@ -1,15 +1,27 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmLikeResult;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/films")
@@ -17,45 +29,101 @@ import java.util.Collection;
 @Validated
 @RequiredArgsConstructor
 public class FilmController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_LIKES_BATCH_SIZE = 10_000;
     private final FilmService service;
 
     @GetMapping
-    public Collection<Film> getFilms() {
-        return service.getFilms();
+    @QueryBudget(3)
+    public ResponseEntity<Collection<Film>> getFilms(@RequestParam(required = false) @PositiveOrZero Long after,
+                                                     @RequestParam(required = false) @Positive @Max(1000)
+                                                     Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(service.getFilms());
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Film> page = service.getFilmsPage(after == null ? 0 : after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getLast().getId()));
+        }
+        return response.body(page);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(service::exportFilms);
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable Long id) {
-        return service.getById(id);
+    @QueryBudget(3)
+    public ResponseEntity<Film> getFilm(@PathVariable Long id, WebRequest request) {
+        String etag = service.getVersionTag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.getById(id));
     }
 
     @PostMapping
+    @QueryBudget(2)
     public Film create(@Valid @RequestBody Film film) {
         return service.create(film);
     }
 
     @PutMapping
+    @QueryBudget(3)
     public Film update(@Valid @RequestBody Film film) {
         return service.update(film);
     }
 
     @DeleteMapping("/{id}")
+    @QueryBudget(2)
     public void delete(@PathVariable Long id) {
         service.delete(id);
     }
 
     @PutMapping("/{id}/like/{userId}")
+    @QueryBudget(3)
     public void addLike(@PathVariable @Positive Long id, @PathVariable @Positive Long userId) {
         service.addLike(id, userId);
     }
 
+    @PostMapping("/likes:batch")
+    @QueryBudget(5)
+    public List<FilmLikeResult> addLikes(@RequestBody @NotEmpty @Size(max = MAX_LIKES_BATCH_SIZE)
+                                         List<@Valid FilmLike> likes) {
+        return service.addLikes(likes);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
+    @QueryBudget(3)
     public void removeLike(@PathVariable @Positive Long id, @PathVariable @Positive Long userId) {
         service.removeLike(id, userId);
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(@RequestParam(defaultValue = "10") @Positive int count) {
-        return service.getPopularFilms(count);
+    @QueryBudget(3)
+    public Collection<Film> getPopularFilms(@RequestParam(defaultValue = "10") @Positive int count,
+                                            @RequestParam(required = false) @Positive Integer genreId,
+                                            @RequestParam(required = false) @Positive Integer year) {
+        return service.getPopularFilms(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    @QueryBudget(3)
+    public List<Film> searchFilms(@RequestParam @NotBlank String q,
+                                  @RequestParam(defaultValue = "20") @Positive @Max(100) int limit) {
+        return service.searchFilms(q, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    @QueryBudget(3)
+    public List<Film> autocomplete(@RequestParam @NotBlank String prefix,
+                                   @RequestParam(defaultValue = "10") @Positive @Max(50) int limit) {
+        return service.autocomplete(prefix, limit);
     }
 }
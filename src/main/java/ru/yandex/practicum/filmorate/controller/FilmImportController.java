@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+
+/**
+ * Пакетный импорт каталога. Отдельный контроллер нужен потому, что путь метода всегда присоединяется к пути
+ * класса через "/", и внутри {@link FilmController} адрес /films:batch не получить.
+ */
+@RestController
+@RequestMapping("/films:batch")
+@Validated
+@RequiredArgsConstructor
+public class FilmImportController {
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private final FilmService service;
+
+    /**
+     * Фильмы вставляются пачками по 1000 строк, жанры — одним пакетом: на 10 000 фильмов 11 запросов.
+     */
+    @PostMapping
+    @QueryBudget(11)
+    public List<Film> createAll(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<@Valid Film> films) {
+        return service.createAll(films);
+    }
+}
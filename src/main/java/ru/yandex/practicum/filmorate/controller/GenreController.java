@@ -22,11 +22,13 @@ public class GenreController {
     GenreService genreService;
 
     @GetMapping
+    @QueryBudget(0)
     public Collection<Genre> getAllGenres() {
         return genreService.getAllGenres();
     }
 
     @GetMapping("/{id}")
+    @QueryBudget(0)
     public Genre getGenreById(@PathVariable("id") int id) {
         return genreService.getGenreById(id);
     }
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Сколько SQL-запросов может потратить один вызов метода контроллера. Превышение не ломает запрос,
+ * а пишется в журнал {@link QueryBudgetTracker}, когда счёт запросов включён.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int value();
+}
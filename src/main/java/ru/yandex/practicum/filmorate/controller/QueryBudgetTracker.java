@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.dal.StatementCounter;
+
+/**
+ * Считает SQL-запросы каждого вызова контроллера через {@link StatementCounter}. Если метод объявил
+ * {@link QueryBudget} и потратил больше, в журнал пишется предупреждение с маршрутом — так N+1 заметен
+ * сразу, а не по росту задержек вместе с данными.
+ * <p>
+ * Работает вместе со счётчиком, только с filmorate.sql.query-count-header=true (профиль dev и тесты).
+ * Число запросов возвращается в заголовке X-Query-Count. Тело ответа отправляется клиенту раньше,
+ * чем завершается вызов, поэтому заголовок ставится перед записью тела, а для ответов без тела —
+ * после вызова метода.
+ */
+@Slf4j
+@ControllerAdvice
+@ConditionalOnProperty(name = "filmorate.sql.query-count-header", havingValue = "true")
+public class QueryBudgetTracker implements AsyncHandlerInterceptor, ResponseBodyAdvice<Object>, WebMvcConfigurer {
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+
+    private final StatementCounter statements;
+
+    public QueryBudgetTracker(StatementCounter statements) {
+        this.statements = statements;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            statements.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        if (handler instanceof HandlerMethod && !response.isCommitted()
+                && !response.containsHeader(QUERY_COUNT_HEADER)) {
+            response.setHeader(QUERY_COUNT_HEADER, String.valueOf(statements.getCount()));
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        statements.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return;
+        }
+        int count = statements.stop();
+        QueryBudget budget = method.getMethodAnnotation(QueryBudget.class);
+        if (budget != null && count > budget.value()) {
+            log.warn("Запрос {} {} потратил {} SQL-запросов при бюджете {}", request.getMethod(),
+                    request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), count, budget.value());
+        }
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        response.getHeaders().set(QUERY_COUNT_HEADER, String.valueOf(statements.getCount()));
+        return body;
+    }
+}
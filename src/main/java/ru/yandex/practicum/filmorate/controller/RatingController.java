@@ -23,11 +23,13 @@ public class RatingController {
      RatingService service;
 
     @GetMapping
+    @QueryBudget(0)
     public Collection<RatingMpa> getAlLMpa() {
         return service.getAllRatings();
     }
 
     @GetMapping("/{id}")
+    @QueryBudget(0)
     public RatingMpa getMpaById(@PathVariable("id") int id) {
         return service.getRatingById(id);
     }
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Стратегия Logbook вместо записи каждого запроса с телом. Запрос и ответ пишутся одной записью
+ * после ответа, когда известны статус и время обработки, и только если:
+ * ответ с ошибкой (статус от 400), запрос медленный (filmorate.http-log.slow-threshold)
+ * или попал в выборку (доля filmorate.http-log.sample-rate).
+ * <p>
+ * По умолчанию тела не буферизуются — в журнал попадают заголовки, статус и время. С
+ * filmorate.http-log.include-body=true тело запроса буферизуется, только если его Content-Length
+ * известен и не больше logbook.write.max-body-size (-1 — без ограничения). Размер тела ответа до
+ * обработки неизвестен, а обёртка ответа Logbook не умеет ограничивать буфер, поэтому тела ответов
+ * буферизуются целиком и обрезаются только в журнале. Потоковые маршруты
+ * (filmorate.http-log.streaming-paths) отдают сколько угодно данных, и их ответы не буферизуются никогда —
+ * даже если маршрут убрать из logbook.predicate.exclude.
+ */
+@Component
+public class SampledHttpLogStrategy implements Strategy {
+    private final double sampleRate;
+    private final Duration slowThreshold;
+    private final boolean includeBody;
+    private final long maxBodySize;
+    private final Set<String> streamingPaths;
+
+    public SampledHttpLogStrategy(@Value("${filmorate.http-log.sample-rate:0.01}") double sampleRate,
+                                  @Value("${filmorate.http-log.slow-threshold:PT0.5S}") Duration slowThreshold,
+                                  @Value("${filmorate.http-log.include-body:false}") boolean includeBody,
+                                  @Value("${logbook.write.max-body-size:-1}") long maxBodySize,
+                                  @Value("${filmorate.http-log.streaming-paths:/films/export}")
+                                  Set<String> streamingPaths) {
+        this.sampleRate = sampleRate;
+        this.slowThreshold = slowThreshold;
+        this.includeBody = includeBody;
+        this.maxBodySize = maxBodySize;
+        this.streamingPaths = Set.copyOf(streamingPaths);
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        return includeBody && fitsCapture(request.getHeaders().getFirst("Content-Length"))
+                ? request.withBody() : request.withoutBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // Запрос пишется вместе с ответом, когда станет ясно, нужен ли он в журнале.
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        return capturesResponseBody(request.getPath()) ? response.withBody() : response.withoutBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (shouldLog(response.getStatus(), correlation.getDuration())) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    boolean capturesResponseBody(String path) {
+        return includeBody && !streamingPaths.contains(path);
+    }
+
+    boolean fitsCapture(String contentLength) {
+        if (maxBodySize < 0) {
+            return true;
+        }
+        if (contentLength == null) {
+            // Тело без длины (chunked) пришлось бы читать целиком, чтобы узнать размер.
+            return false;
+        }
+        try {
+            return Long.parseLong(contentLength.trim()) <= maxBodySize;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    boolean shouldLog(int status, Duration duration) {
+        return status >= 400
+                || duration.compareTo(slowThreshold) >= 0
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
@@ -1,12 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -18,51 +25,97 @@ import java.util.List;
 @Validated
 @RequiredArgsConstructor
 public class UserController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
     private final UserService service;
+    private final FilmService filmService;
 
     @GetMapping
-    public Collection<User> getAll() {
-        return service.getAllValues();
+    @QueryBudget(2)
+    public ResponseEntity<Collection<User>> getAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                                   @RequestParam(required = false) @Positive @Max(1000)
+                                                   Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(service.getAllValues());
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<User> page = service.getUsersPage(after == null ? 0 : after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getLast().getId()));
+        }
+        return response.body(page);
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable Long id) {
-        return service.getById(id);
+    @QueryBudget(2)
+    public ResponseEntity<User> getById(@PathVariable Long id, WebRequest request) {
+        String etag = service.getVersionTag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.getById(id));
     }
 
     @PostMapping
+    @QueryBudget(1)
     public User create(@Valid @RequestBody User user) {
         return service.create(user);
     }
 
     @PutMapping
+    @QueryBudget(1)
     public User update(@Valid @RequestBody User user) {
         return service.update(user);
     }
 
     @DeleteMapping("/{id}")
+    @QueryBudget(1)
     public void delete(@PathVariable Long id) {
         service.delete(id);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
+    @QueryBudget(2)
     public void addFriend(@PathVariable @Positive Long id, @PathVariable @Positive Long friendId) {
         service.addFriend(id, friendId);
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
+    @QueryBudget(2)
     public void deleteFriend(@PathVariable @Positive Long id, @PathVariable @Positive Long friendId) {
         service.removeFriend(id, friendId);
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable @Positive Long id) {
-        return service.getFriends(id);
+    @QueryBudget(2)
+    public ResponseEntity<List<User>> getFriends(@PathVariable @Positive Long id, WebRequest request) {
+        String etag = service.getFriendsVersionTag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.getFriends(id));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
+    @QueryBudget(2)
     public List<User> getMutualFriends(@PathVariable @Positive Long id, @PathVariable @Positive Long otherId) {
         return service.getMutualFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/recommendations")
+    @QueryBudget(2)
+    public List<Film> getRecommendations(@PathVariable @Positive Long id,
+                                         @RequestParam(defaultValue = "10") @Positive @Max(100) int count) {
+        return filmService.getRecommendations(id, count);
+    }
+
+    @GetMapping("/{id}/suggestions")
+    @QueryBudget(2)
+    public List<FriendSuggestion> getFriendSuggestions(@PathVariable @Positive Long id,
+                                                       @RequestParam(defaultValue = "10") @Positive @Max(100)
+                                                       int count) {
+        return service.getFriendSuggestions(id, count);
+    }
 }
 
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Считает SQL-запросы, которые поток отправляет в базу между start и stop, — обычно за время одного
+ * HTTP-запроса. Пакетный запрос считается за один. Задача, которую поток отдаёт в пул, переносит счётчик
+ * с собой через {@link #wrap(Runnable)}. Вне счёта соединение только проверяет, что счётчика нет.
+ * <p>
+ * Каждое соединение оборачивается в прокси, поэтому счётчик создаётся только с
+ * filmorate.sql.query-count-header=true (профиль dev и тесты), в остальных случаях DataSource не трогается.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.sql.query-count-header", havingValue = "true")
+public class StatementCounter implements BeanPostProcessor {
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "createStatement", "prepareCall");
+    private final ThreadLocal<AtomicInteger> current = new ThreadLocal<>();
+
+    public void start() {
+        current.set(new AtomicInteger());
+    }
+
+    /**
+     * Закрывает счёт текущего потока и возвращает число запросов.
+     */
+    public int stop() {
+        AtomicInteger counter = current.get();
+        current.remove();
+        return counter == null ? 0 : counter.get();
+    }
+
+    public int getCount() {
+        AtomicInteger counter = current.get();
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Задача, которая в любом потоке считает свои запросы в счёт потока, создавшего её.
+     */
+    public Runnable wrap(Runnable task) {
+        AtomicInteger counter = current.get();
+        if (counter == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = current.get();
+            current.set(counter);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    current.remove();
+                } else {
+                    current.set(previous);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return countingConnection(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return countingConnection(super.getConnection(username, password));
+                }
+            };
+        }
+        return bean;
+    }
+
+    private Connection countingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    AtomicInteger counter = current.get();
+                    if (counter != null && STATEMENT_METHODS.contains(method.getName())) {
+                        counter.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -18,6 +18,7 @@ public class FilmRowMapper implements RowMapper<Film> {
                 .description(resultSet.getString("description"))
                 .releaseDate(resultSet.getDate("release_date").toLocalDate())
                 .duration(resultSet.getInt("duration_in_minutes"))
+                .likeCount(resultSet.getLong("like_count"))
                 .mpa(new RatingMpa(resultSet.getInt("rating_id"), resultSet.getString("name")))
                 .build();
     }
@@ -1,15 +0,0 @@
-package ru.yandex.practicum.filmorate.dal.mappers;
-
-import org.springframework.jdbc.core.RowMapper;
-import org.springframework.stereotype.Component;
-
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
-@Component
-public class LikeUserIdRowMapper implements RowMapper<Long> {
-    @Override
-    public Long mapRow(ResultSet resultSet, int rowNum) throws SQLException {
-        return resultSet.getLong("user_id");
-    }
-}
\ No newline at end of file
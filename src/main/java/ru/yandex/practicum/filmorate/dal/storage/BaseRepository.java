@@ -2,47 +2,124 @@ package ru.yandex.practicum.filmorate.dal.storage;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Общие запросы репозиториев. Каждый запрос получает логическое имя вида film.getById.likes,
+ * под которым его время и число строк попадают в {@link QueryMetrics}.
+ */
 @RequiredArgsConstructor
 public abstract class BaseRepository<T> {
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     protected final JdbcTemplate jdbc;
+    protected final QueryMetrics queries;
 
-    protected Optional<T> findOne(String query, RowMapper<T> mapper, Object... params) {
+    protected <E> Optional<E> findOne(String name, String query, RowMapper<E> mapper, Object... params) {
         try {
-            T result = jdbc.queryForObject(query, mapper, params);
+            E result = queries.record(name, query, params, () -> jdbc.queryForObject(query, mapper, params),
+                    row -> 1);
             return Optional.ofNullable(result);
         } catch (EmptyResultDataAccessException ignored) {
             return Optional.empty();
         }
     }
 
-    protected List<T> findMany(String query, RowMapper<T> mapper, Object... params) {
-        return jdbc.query(query, mapper, params);
+    protected <E> List<E> findMany(String name, String query, RowMapper<E> mapper, Object... params) {
+        return queries.record(name, query, params, () -> jdbc.query(query, mapper, params), List::size);
+    }
+
+    protected <E> List<E> findMany(String name, String query, Class<E> type, Object... params) {
+        return queries.record(name, query, params, () -> jdbc.queryForList(query, type, params), List::size);
+    }
+
+    protected <E> E findValue(String name, String query, Class<E> type, Object... params) {
+        return queries.record(name, query, params, () -> jdbc.queryForObject(query, type, params), value -> 1);
+    }
+
+    /**
+     * Передаёт handler строки результата по одной, не собирая их в список.
+     */
+    protected void forEachRow(String name, String query, RowCallbackHandler handler, Object... params) {
+        long[] rows = new long[1];
+        queries.record(name, query, params, () -> {
+            jdbc.query(query, rs -> {
+                rows[0]++;
+                handler.processRow(rs);
+            }, params);
+            return rows;
+        }, counted -> counted[0]);
     }
 
-    protected boolean delete(String query, Object... params) {
-        int rowsDeleted = jdbc.update(query, params);
-        return rowsDeleted > 0;
+    protected boolean delete(String name, String query, Object... params) {
+        return execute(name, query, params) > 0;
     }
 
-    protected void update(String query, Object... params) {
-        int rowsUpdated = jdbc.update(query, params);
-        if (rowsUpdated == 0) {
+    protected void update(String name, String query, Object... params) {
+        if (execute(name, query, params) == 0) {
             throw new NotFoundException("Не удалось обновить данные");
         }
     }
 
-    protected long create(String query, Object... params) {
+    /**
+     * INSERT, UPDATE или DELETE; возвращает число изменённых строк.
+     */
+    protected int execute(String name, String query, Object... params) {
+        return queries.record(name, query, params, () -> jdbc.update(query, params), Integer::longValue);
+    }
+
+    protected void batchUpdate(String name, String query, List<Object[]> rows) {
+        queries.record(name, query, new Object[]{rows.size() + " строк"}, () -> jdbc.batchUpdate(query, rows),
+                counts -> Arrays.stream(counts).sum());
+    }
+
+    /**
+     * Пакетный запрос; возвращает число изменённых строк по каждой строке пакета.
+     */
+    protected int[] batchUpdate(String name, String query, BatchPreparedStatementSetter setter) {
+        return queries.record(name, query, new Object[]{setter.getBatchSize() + " строк"},
+                () -> jdbc.batchUpdate(query, setter), counts -> Arrays.stream(counts).sum());
+    }
+
+    /**
+     * Выполняет action после фиксации текущей транзакции, а без транзакции — сразу. Так структуры в памяти
+     * не меняются, если транзакция откатится.
+     */
+    protected static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    protected long create(String name, String query, Object... params) {
+        return queries.record(name, query, params, () -> insert(query, params), id -> 1);
+    }
+
+    private long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
             PreparedStatement ps = connection
@@ -61,4 +138,40 @@ public abstract class BaseRepository<T> {
             throw new InternalServerException("Не удалось сохранить данные");
         }
     }
+
+    /**
+     * Пакетная вставка строк с получением сгенерированных ключей в порядке строк.
+     */
+    protected List<Long> createAll(String name, String query, List<Object[]> rows) {
+        return queries.record(name, query, new Object[]{rows.size() + " строк"}, () -> insertAll(query, rows),
+                List::size);
+    }
+
+    private List<Long> insertAll(String query, List<Object[]> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += INSERT_BATCH_SIZE) {
+            List<Object[]> batch = rows.subList(from, Math.min(from + INSERT_BATCH_SIZE, rows.size()));
+            jdbc.execute((Connection connection) -> connection
+                            .prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+                    (PreparedStatement ps) -> {
+                        for (Object[] params : batch) {
+                            for (int idx = 0; idx < params.length; idx++) {
+                                ps.setObject(idx + 1, params[idx]);
+                            }
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            while (keys.next()) {
+                                ids.add(keys.getLong(1));
+                            }
+                        }
+                        return null;
+                    });
+        }
+        if (ids.size() != rows.size()) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        return ids;
+    }
 }
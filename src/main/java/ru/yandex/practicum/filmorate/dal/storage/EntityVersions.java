@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.dal.storage;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Счётчики изменений фильмов и пользователей для ETag. Счётчик хранится только у изменённых с запуска
+ * сущностей, у остальных он равен нулю; в тег входит время запуска, поэтому теги прошлого запуска не совпадут.
+ * Изменение внутри транзакции увеличивает счётчик сразу и ещё раз после фиксации: тег, выданный вместе
+ * с данными до фиксации, после неё устаревает.
+ */
+@Component
+public class EntityVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, Long> films = new ConcurrentHashMap<>();
+    private final Map<Long, Long> users = new ConcurrentHashMap<>();
+
+    public void filmChanged(long filmId) {
+        bump(films, filmId);
+    }
+
+    public void userChanged(long userId) {
+        bump(users, userId);
+    }
+
+    public String filmTag(long filmId) {
+        return "f" + epoch + "." + filmId + "." + films.getOrDefault(filmId, 0L);
+    }
+
+    public String userTag(long userId) {
+        return "u" + epoch + "." + userId + "." + users.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Тег списка друзей: меняется при изменении самого пользователя, состава его друзей и любого из друзей.
+     */
+    public String friendsTag(long userId, long[] friendIds) {
+        long hash = users.getOrDefault(userId, 0L);
+        for (long friendId : friendIds) {
+            hash = 31 * (31 * hash + friendId) + users.getOrDefault(friendId, 0L);
+        }
+        return "uf" + epoch + "." + userId + "." + Long.toHexString(hash);
+    }
+
+    private static void bump(Map<Long, Long> versions, long id) {
+        versions.merge(id, 1L, Long::sum);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.merge(id, 1L, Long::sum);
+                }
+            });
+        }
+    }
+}
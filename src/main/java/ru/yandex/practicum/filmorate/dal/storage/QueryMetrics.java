@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.dal.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Время и число строк каждого SQL-запроса по его логическому имени вида film.getById.likes.
+ * Время пишется в таймер filmorate.sql с гистограммой и перцентилями, строки — в счётчик filmorate.sql.rows,
+ * оба с тегом query. Запрос дольше filmorate.sql.slow-query-threshold попадает в журнал вместе
+ * с параметрами. Метры создаются при первом запросе с таким именем, дальше запись стоит одного
+ * обращения к ConcurrentHashMap и двух вызовов System.nanoTime.
+ */
+@Slf4j
+@Component
+public class QueryMetrics {
+    private static final int MAX_LOGGED_ELEMENTS = 20;
+
+    private final MeterRegistry registry;
+    private final long slowQueryNanos;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QueryMetrics(ObjectProvider<MeterRegistry> registry,
+                        @Value("${filmorate.sql.slow-query-threshold:PT0.1S}") Duration slowQueryThreshold) {
+        this(registry.getIfAvailable(SimpleMeterRegistry::new), slowQueryThreshold);
+    }
+
+    public QueryMetrics(MeterRegistry registry, Duration slowQueryThreshold) {
+        this.registry = registry;
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    /**
+     * Выполняет statement и записывает его время и число строк, которое rows извлекает из результата.
+     * Запрос, завершившийся исключением, тоже учитывается — с нулём строк.
+     */
+    public <T> T record(String name, String sql, Object[] params, Supplier<T> statement,
+                        ToLongFunction<? super T> rows) {
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = statement.get();
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Meters queryMeters = meters.computeIfAbsent(name, this::register);
+            queryMeters.timer().record(elapsed, TimeUnit.NANOSECONDS);
+            if (result != null) {
+                queryMeters.rows().increment(rows.applyAsLong(result));
+            }
+            if (elapsed >= slowQueryNanos) {
+                log.warn("Медленный запрос {}: {} мс, {} параметры {}", name, elapsed / 1_000_000, sql,
+                        describe(params));
+            }
+        }
+    }
+
+    public Timer getTimer(String name) {
+        return meters.computeIfAbsent(name, this::register).timer();
+    }
+
+    public double getRowCount(String name) {
+        return meters.computeIfAbsent(name, this::register).rows().count();
+    }
+
+    private Meters register(String name) {
+        return new Meters(
+                Timer.builder("filmorate.sql")
+                        .description("Время выполнения SQL-запроса")
+                        .tag("query", name)
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                Counter.builder("filmorate.sql.rows")
+                        .description("Строки, прочитанные или изменённые запросом")
+                        .tag("query", name)
+                        .register(registry));
+    }
+
+    private static String describe(Object[] params) {
+        if (params == null) {
+            return "[]";
+        }
+        Object[] shown = new Object[params.length];
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] instanceof Object[] array && array.length > MAX_LOGGED_ELEMENTS) {
+                shown[i] = Arrays.toString(Arrays.copyOf(array, MAX_LOGGED_ELEMENTS))
+                        + " и ещё " + (array.length - MAX_LOGGED_ELEMENTS);
+            } else {
+                shown[i] = params[i];
+            }
+        }
+        return Arrays.deepToString(shown);
+    }
+
+    private record Meters(Timer timer, Counter rows) {
+    }
+}
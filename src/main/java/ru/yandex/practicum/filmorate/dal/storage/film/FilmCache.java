@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш фильмов по id перед {@link FilmRepository#getById}. Ограничен по числу фильмов и по времени с момента
+ * загрузки. Промах загружает фильм один раз: параллельные запросы того же id ждут эту загрузку, а не идут в базу.
+ * Отсутствующие фильмы не кэшируются.
+ * <p>
+ * Фильм вычёркивается при каждом его изменении и ещё раз по завершении транзакции: иначе чтение, попавшее
+ * между изменением и фиксацией, положило бы в кэш старые данные, а при откате — несуществующие.
+ * Загрузка, начатая до вычёркивания, успевает закончиться раньше, чем вычёркивание выполнится.
+ * Статистика попаданий и вытеснений публикуется в метриках cache.* с тегом cache=films.
+ */
+@Component
+public class FilmCache implements MeterBinder {
+    private final Cache<Long, Film> films;
+
+    public FilmCache(@Value("${filmorate.film-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${filmorate.film-cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Фильм из кэша или из loader. Возвращается копия вместе с рейтингом и жанрами: изменения вызывающего кода
+     * кэш не портят. Лайки не копируются — {@link ru.yandex.practicum.filmorate.model.LikeSet} неизменяем.
+     */
+    public Film get(long filmId, Function<Long, Film> loader) {
+        return copy(films.get(filmId, loader));
+    }
+
+    public void invalidate(long filmId) {
+        films.invalidate(filmId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    films.invalidate(filmId);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        films.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return films.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, films, "films");
+    }
+
+    private static Film copy(Film film) {
+        return Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .likeCount(film.getLikeCount())
+                .likes(film.getLikes())
+                .mpa(film.getMpa() == null ? null : new RatingMpa(film.getMpa().getId(), film.getMpa().getName()))
+                .genres(film.getGenres().stream()
+                        .map(genre -> new Genre(genre.getId(), genre.getName()))
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .build();
+    }
+}
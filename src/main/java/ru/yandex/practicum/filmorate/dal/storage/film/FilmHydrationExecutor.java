@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.StatementCounter;
+
+/**
+ * Пул film-hydration для параллельной дозагрузки лайков и жанров в {@link FilmRepository#getById}.
+ * Создаётся только с filmorate.films.async-hydration.enabled=true, останавливается вместе с контекстом.
+ * Задачи считают свои SQL-запросы в счёт потока, который их отправил, если счётчик запросов включён.
+ * Очередь и загрузка пула публикуются в метриках executor.* с тегом name=film.hydration.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.films.async-hydration.enabled", havingValue = "true")
+public class FilmHydrationExecutor extends ThreadPoolTaskExecutor implements MeterBinder {
+
+    public FilmHydrationExecutor(@Value("${filmorate.films.async-hydration.threads:8}") int threads,
+                                 ObjectProvider<StatementCounter> statements) {
+        setCorePoolSize(threads);
+        setMaxPoolSize(threads);
+        setThreadNamePrefix("film-hydration-");
+        statements.ifAvailable(counter -> setTaskDecorator(counter::wrap));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(getThreadPoolExecutor(), "film.hydration", Tags.empty()).bindTo(registry);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.dal.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.util.*;
+
+/**
+ * Дозагружает лайки, жанры и рейтинг MPA сразу для целой страницы фильмов.
+ * Количество запросов не зависит от размера страницы: по одному на лайки и жанры, рейтинги берутся из справочника.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FilmHydrator {
+    JdbcTemplate jdbc;
+    QueryMetrics queries;
+    ReferenceDataCache referenceData;
+
+    public List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            film.setGenres(new ArrayList<>());
+            referenceData.getRating(film.getMpa().getId()).ifPresent(film::setMpa);
+            filmsById.put(film.getId(), film);
+        }
+        Long[] filmIds = filmsById.keySet().toArray(new Long[0]);
+
+        loadLikes(filmsById, filmIds);
+        loadGenres(filmsById, filmIds);
+        return films;
+    }
+
+    private void loadLikes(Map<Long, Film> filmsById, Long[] filmIds) {
+        String query = "SELECT film_id, user_id FROM film_like WHERE film_id = ANY(?)";
+        Map<Long, LikeSet.Builder> likes = new HashMap<>();
+        Object[] params = {filmIds};
+        long[] rows = new long[1];
+        queries.record("film.hydrate.likes", query, params, () -> {
+            jdbc.query(query, rs -> {
+                rows[0]++;
+                likes.computeIfAbsent(rs.getLong("film_id"), filmId -> LikeSet.builder())
+                        .add(rs.getLong("user_id"));
+            }, params);
+            return rows;
+        }, counted -> counted[0]);
+        filmsById.forEach((filmId, film) -> {
+            LikeSet.Builder builder = likes.get(filmId);
+            film.setLikes(builder == null ? LikeSet.empty() : builder.build());
+        });
+    }
+
+    private void loadGenres(Map<Long, Film> filmsById, Long[] filmIds) {
+        String query = "SELECT film_id, genre_id FROM film_genre WHERE film_id = ANY(?) ORDER BY film_id, genre_id";
+        Object[] params = {filmIds};
+        long[] rows = new long[1];
+        queries.record("film.hydrate.genres", query, params, () -> {
+            jdbc.query(query, rs -> {
+                rows[0]++;
+                List<Genre> genres = filmsById.get(rs.getLong("film_id")).getGenres();
+                referenceData.getGenre(rs.getInt("genre_id")).ifPresent(genres::add);
+            }, params);
+            return rows;
+        }, counted -> counted[0]);
+    }
+}
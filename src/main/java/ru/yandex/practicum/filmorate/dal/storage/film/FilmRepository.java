@@ -1,77 +1,181 @@
 package ru.yandex.practicum.filmorate.dal.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
-import ru.yandex.practicum.filmorate.dal.mappers.LikeUserIdRowMapper;
 import ru.yandex.practicum.filmorate.dal.storage.BaseRepository;
-import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
-import ru.yandex.practicum.filmorate.dal.storage.genre.GenreRepository;
-import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaRepository;
+import ru.yandex.practicum.filmorate.dal.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.dal.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.dal.storage.reference.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmLikeResult;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
 import ru.yandex.practicum.filmorate.model.RatingMpa;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Repository("filmRepository")
 @Primary
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class FilmRepository extends BaseRepository<Film> implements FilmStorage {
     RowMapper<Film> mapper = new FilmRowMapper();
-    MpaRepository mpaRepository;
-    UserStorage storage;
-    GenreRepository genreRepository;
+    ReferenceDataCache referenceData;
+    FilmHydrator hydrator;
+    PopularFilmsLeaderboard leaderboard;
+    FilmSimilarityIndex similarityIndex;
+    FilmSearchIndex searchIndex;
+    FilmTitleTrie titleTrie;
+    EntityVersions versions;
+    FilmCache filmCache;
+    Executor hydrationExecutor;
+    boolean repairLikeCountsOnStartup;
 
-    public FilmRepository(JdbcTemplate jdbc, MpaRepository mpaRepository, UserStorage storage,
-                          GenreRepository genreRepository) {
-        super(jdbc);
-        this.mpaRepository = mpaRepository;
-        this.storage = storage;
-        this.genreRepository = genreRepository;
+    public FilmRepository(JdbcTemplate jdbc, QueryMetrics queries, ReferenceDataCache referenceData,
+                          FilmHydrator hydrator, PopularFilmsLeaderboard leaderboard,
+                          FilmSimilarityIndex similarityIndex, FilmSearchIndex searchIndex, FilmTitleTrie titleTrie,
+                          EntityVersions versions, FilmCache filmCache,
+                          ObjectProvider<FilmHydrationExecutor> hydrationExecutor,
+                          @Value("${filmorate.likes.repair-on-startup:false}") boolean repairLikeCountsOnStartup) {
+        super(jdbc, queries);
+        this.referenceData = referenceData;
+        this.hydrator = hydrator;
+        this.leaderboard = leaderboard;
+        this.similarityIndex = similarityIndex;
+        this.searchIndex = searchIndex;
+        this.titleTrie = titleTrie;
+        this.versions = versions;
+        this.filmCache = filmCache;
+        this.hydrationExecutor = hydrationExecutor.getIfAvailable();
+        this.repairLikeCountsOnStartup = repairLikeCountsOnStartup;
+    }
+
+    @PostConstruct
+    void init() {
+        if (repairLikeCountsOnStartup) {
+            repairLikeCounts();
+        }
     }
 
     @Override
+    @Transactional
     public Film create(Film film) {
-        RatingMpa mpa = mpaRepository.getRatingById(film.getMpa().getId());
+        RatingMpa mpa = resolveRating(film.getMpa().getId());
 
         String query = "INSERT INTO film(name, description, release_date, duration_in_minutes, rating_id)" +
                 "VALUES(?, ?, ?, ?, ?)";
-        long id = super.create(query,
+        long id = super.create("film.create", query,
                 film.getName(),
                 film.getDescription(),
                 Date.valueOf(film.getReleaseDate()),
                 film.getDuration(),
                 mpa.getId());
         film.setId(id);
-        film.setLikes(new HashSet<>());
+        film.setLikes(LikeSet.empty());
 
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            addFilmGenres(film.getId(), film.getGenres());
+            film.setGenres(addFilmGenres(film.getId(), film.getGenres()));
         }
         film.setMpa(mpa);
+        indexFilm(film);
 
         return film;
     }
 
+    /**
+     * Пакетное создание фильмов. Рейтинги и жанры проверяются один раз на каждый различный id,
+     * фильмы вставляются пакетами с получением ключей, связи с жанрами пишутся одним пакетом.
+     */
     @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        Map<Integer, RatingMpa> ratings = new HashMap<>();
+        Map<Integer, Genre> genres = new HashMap<>();
+        for (Film film : films) {
+            ratings.computeIfAbsent(film.getMpa().getId(), this::resolveRating);
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> genres.computeIfAbsent(genre.getId(), this::resolveGenre));
+            }
+        }
+
+        String query = "INSERT INTO film(name, description, release_date, duration_in_minutes, rating_id)" +
+                "VALUES(?, ?, ?, ?, ?)";
+        List<Long> ids = super.createAll("film.createAll", query, films.stream()
+                .map(film -> new Object[]{
+                        film.getName(),
+                        film.getDescription(),
+                        Date.valueOf(film.getReleaseDate()),
+                        film.getDuration(),
+                        film.getMpa().getId()})
+                .toList());
+
+        List<long[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids.get(i));
+            film.setLikes(LikeSet.empty());
+            film.setMpa(ratings.get(film.getMpa().getId()));
+            List<Genre> resolved = film.getGenres() == null ? new ArrayList<>() : film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .map(genres::get)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            resolved.forEach(genre -> filmGenres.add(new long[]{film.getId(), genre.getId()}));
+            film.setGenres(resolved);
+            indexFilm(film);
+        }
+        if (!filmGenres.isEmpty()) {
+            batchUpdate("film.createAll.genres", "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, filmGenres.get(i)[0]);
+                            ps.setLong(2, filmGenres.get(i)[1]);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return filmGenres.size();
+                        }
+                    });
+        }
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Film update(Film film) {
-        RatingMpa mpa = mpaRepository.getRatingById(film.getMpa().getId());
+        RatingMpa mpa = resolveRating(film.getMpa().getId());
         String query = "UPDATE film SET name= ?, description= ?, release_date= ?, duration_in_minutes=?, " +
                 "rating_id= ? WHERE id= ?";
-        super.update(query,
+        super.update("film.update", query,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
@@ -80,12 +184,15 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
                 film.getId()
         );
 
+        film.setMpa(mpa);
         deleteFilmGenres(film.getId());
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            addFilmGenres(film.getId(), film.getGenres());
+            film.setGenres(addFilmGenres(film.getId(), film.getGenres()));
         }
+        indexFilm(film);
+        filmChanged(film.getId());
         if (film.getLikes() != null && !film.getLikes().isEmpty()) {
-            for (Long userId : film.getLikes()) {
+            for (long userId : film.getLikes().toLongArray()) {
                 addLike(film.getId(), userId);
             }
         }
@@ -94,19 +201,52 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
 
     @Override
     public Film getById(Long id) {
-        String query = "SELECT f.*, r.name AS mpa_name FROM film f " +
-                "JOIN mpa_rating r ON f.rating_id = r.id " +
-                "WHERE f.id = ?";
-        Film film = findOne(query, mapper, id)
+        return filmCache.get(id, this::loadById);
+    }
+
+    private Film loadById(Long id) {
+        if (hydrationExecutor != null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loadByIdConcurrently(id);
+        }
+        String query = "SELECT * FROM film WHERE id = ?";
+        Film film = findOne("film.getById", query, mapper, id)
                 .orElseThrow(() -> new NotFoundException(String.format("Фильм с id %d не найден", id)));
-        Set<Long> likes = getUserIdsFromLikes(id);
-        film.setLikes(likes);
+        film.setLikes(getUserIdsFromLikes(id));
         List<Genre> genres = getGenre(id);
         film.setGenres(genres);
-        film.setMpa(mpaRepository.getRatingById(film.getMpa().getId()));
+        film.setMpa(resolveRating(film.getMpa().getId()));
+        return film;
+    }
+
+    /**
+     * Лайки и жанры читаются в пуле film-hydration одновременно со строкой фильма, и время загрузки
+     * определяется самым долгим из трёх запросов, а не их суммой. Внутри транзакции не используется:
+     * запросы из других потоков не видят её незафиксированных изменений.
+     */
+    private Film loadByIdConcurrently(Long id) {
+        CompletableFuture<LikeSet> likes = CompletableFuture.supplyAsync(
+                () -> getUserIdsFromLikes(id), hydrationExecutor);
+        CompletableFuture<List<Genre>> genres = CompletableFuture.supplyAsync(
+                () -> getGenre(id), hydrationExecutor);
+        Film film = findOne("film.getById", "SELECT * FROM film WHERE id = ?", mapper, id)
+                .orElseThrow(() -> new NotFoundException(String.format("Фильм с id %d не найден", id)));
+        film.setLikes(join(likes));
+        film.setGenres(join(genres));
+        film.setMpa(resolveRating(film.getMpa().getId()));
         return film;
     }
 
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     @Override
     public Map<Long, Film> getAll() {
         return getFilms().stream()
@@ -115,104 +255,366 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
 
     @Override
     public List<Film> getFilms() {
-        String query = "SELECT * FROM film";
-        List<Film> films = findMany(query, mapper);
-        for (Film film : films) {
-            long id = film.getId();
-            film.setLikes(getUserIdsFromLikes(id));
-            film.setGenres(getGenre(id));
-            film.setMpa(mpaRepository.getRatingById(film.getMpa().getId()));
+        String query = "SELECT * FROM film ORDER BY id";
+        return hydrator.hydrate(findMany("film.getFilms", query, mapper));
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        String query = "SELECT * FROM film WHERE id > ? ORDER BY id LIMIT ?";
+        return hydrator.hydrate(findMany("film.getFilmsPage", query, mapper, afterId, limit));
+    }
+
+    @Override
+    public void forEachFilm(int fetchSize, Consumer<Film> action) {
+        String query = """
+                SELECT f.*,
+                       ARRAY(SELECT fg.genre_id FROM film_genre fg WHERE fg.film_id = f.id ORDER BY fg.genre_id)
+                           AS genre_ids,
+                       ARRAY(SELECT fl.user_id FROM film_like fl WHERE fl.film_id = f.id) AS like_ids
+                FROM film f
+                ORDER BY f.id
+                """;
+        long[] rows = new long[1];
+        queries.record("film.forEachFilm", query, new Object[0], () -> {
+            jdbc.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(query,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, rs -> {
+                rows[0]++;
+                exportRow(rs, action);
+            });
+            return rows;
+        }, counted -> counted[0]);
+    }
+
+    private void exportRow(ResultSet rs, Consumer<Film> action) throws SQLException {
+        Film film = mapper.mapRow(rs, rs.getRow());
+        film.setMpa(resolveRating(film.getMpa().getId()));
+        List<Genre> filmGenres = new ArrayList<>();
+        for (Object genreId : (Object[]) rs.getArray("genre_ids").getArray()) {
+            filmGenres.add(resolveGenre(((Number) genreId).intValue()));
         }
-        return films;
+        film.setGenres(filmGenres);
+        Object[] likeIds = (Object[]) rs.getArray("like_ids").getArray();
+        LikeSet.Builder likes = LikeSet.builder(likeIds.length);
+        for (Object userId : likeIds) {
+            likes.add(((Number) userId).longValue());
+        }
+        film.setLikes(likes.build());
+        action.accept(film);
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
         String query = "DELETE FROM film WHERE id = ?";
-        boolean isSuccessful = super.delete(query, id);
+        boolean isSuccessful = super.delete("film.delete", query, id);
 
         if (!isSuccessful) {
             throw new InternalServerException("Не удалось удалить фильм с id: " + id);
         }
 
         deleteFilmGenres(id);
+        afterCommit(() -> {
+            leaderboard.remove(id);
+            similarityIndex.removeFilm(id);
+            searchIndex.remove(id);
+            titleTrie.remove(id);
+        });
+        filmChanged(id);
     }
 
     @Override
-    public Collection<Film> getPopularFilms(int count) {
-        String query = """
-                    SELECT f.*
-                    FROM film f
-                    JOIN (
-                        SELECT film_id
-                        FROM film_like
-                        GROUP BY film_id
-                        ORDER BY COUNT(user_id) DESC
-                        LIMIT ?
-                    ) AS top ON f.id = top.film_id;
-                """;
-        List<Film> popularFilms = findMany(query, mapper, count);
-        for (Film film : popularFilms) {
-            long id = film.getId();
-            film.setLikes(getUserIdsFromLikes(id));
-            film.setGenres(getGenre(id));
-            film.setMpa(mpaRepository.getRatingById(film.getMpa().getId()));
+    public String getVersionTag(Long id) {
+        return versions.filmTag(id);
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count, Integer genreId, Integer year) {
+        return getFilmsByIds(leaderboard.getTop(count, genreId, year));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        return getFilmsByIds(searchIndex.search(query, limit));
+    }
+
+    @Override
+    public List<Film> autocomplete(String prefix, int limit) {
+        return getFilmsByIds(titleTrie.complete(prefix, limit));
+    }
+
+    private List<Film> getFilmsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String query = "SELECT * FROM film WHERE id = ANY(?)";
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : hydrator.hydrate(findMany("film.getFilmsByIds", query, mapper,
+                (Object) ids.toArray(new Long[0])))) {
+            filmsById.put(film.getId(), film);
         }
-        return popularFilms;
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
     }
 
-    private boolean addFilmGenres(Long filmId, List<Genre> genres) {
+    private List<Genre> addFilmGenres(Long filmId, List<Genre> genres) {
+        List<Genre> filmGenres = genres.stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(this::resolveGenre)
+                .collect(Collectors.toCollection(ArrayList::new));
         String query = "MERGE INTO film_genre " +
                     "KEY (film_id, genre_id) " +
                     "VALUES (?, ?)";
-        jdbc.batchUpdate(query, new BatchPreparedStatementSetter() {
+        batchUpdate("film.addGenres", query, new BatchPreparedStatementSetter() {
             @Override
             public void setValues(PreparedStatement ps, int i) throws SQLException {
-                Genre genre = genres.get(i);
-                genreRepository.getGenreById(genre.getId());
                 ps.setLong(1, filmId);
-                ps.setLong(2, genre.getId());
+                ps.setLong(2, filmGenres.get(i).getId());
             }
 
             @Override
             public int getBatchSize() {
-                return genres.size();
+                return filmGenres.size();
             }
         });
-        return true;
+        return filmGenres;
+    }
+
+    private RatingMpa resolveRating(int id) {
+        return referenceData.getRating(id)
+                .orElseThrow(() -> new NotFoundException("Рейтинг с таким id не найден:" + id));
+    }
+
+    private Genre resolveGenre(int id) {
+        return referenceData.getGenre(id)
+                .orElseThrow(() -> new NotFoundException("Жанр с id " + id + " не найден."));
     }
 
     private boolean deleteFilmGenres(Long filmId) {
         String query = "DELETE FROM film_genre WHERE film_id = ?";
-        int rowsDeleted = jdbc.update(query, filmId);
-        return rowsDeleted > 0;
+        return delete("film.deleteGenres", query, filmId);
     }
 
     @Override
+    @Transactional
     public void addLike(Long filmId, Long userId) {
-        storage.getById(userId);
-        getById(filmId);
+        checkFilmAndUserExist(filmId, userId);
         String query = "INSERT INTO film_like (film_id, user_id) VALUES (?, ?)";
-        super.update(query, filmId, userId);
+        super.update("film.addLike", query, filmId, userId);
+        super.update("film.addLike.likeCount", "UPDATE film SET like_count = like_count + 1 WHERE id = ?", filmId);
+        filmChanged(filmId);
+        afterCommit(() -> {
+            leaderboard.increment(filmId);
+            titleTrie.setLikes(filmId, leaderboard.getLikes(filmId));
+            similarityIndex.onLikeAdded(userId, filmId);
+        });
     }
 
     @Override
+    @Transactional
     public void removeLike(Long filmId, Long userId) {
-        getById(filmId);
-        storage.getById(userId);
+        checkFilmAndUserExist(filmId, userId);
         String query = "DELETE FROM film_like WHERE film_id = ? and user_id = ?";
-        super.update(query, filmId, userId);
+        super.update("film.removeLike", query, filmId, userId);
+        super.update("film.removeLike.likeCount", "UPDATE film SET like_count = like_count - 1 WHERE id = ?",
+                filmId);
+        filmChanged(filmId);
+        afterCommit(() -> {
+            leaderboard.decrement(filmId);
+            titleTrie.setLikes(filmId, leaderboard.getLikes(filmId));
+            similarityIndex.onLikeRemoved(userId, filmId);
+        });
+    }
+
+    /**
+     * Пакетное добавление лайков. Существование фильмов и пользователей проверяется одним запросом на таблицу,
+     * повторные лайки не меняют данные и возвращаются со статусом DUPLICATE. Повтор внутри пакета отсекается
+     * в памяти, а уже сохранённый лайк — по числу строк, которые вставил MERGE, без предварительного чтения
+     * film_like: счётчик увеличивают только действительно вставленные лайки.
+     */
+    @Override
+    @Transactional
+    public List<FilmLikeResult> addLikes(List<FilmLike> likes) {
+        Long[] filmIds = likes.stream().map(FilmLike::getFilmId).distinct().toArray(Long[]::new);
+        Long[] userIds = likes.stream().map(FilmLike::getUserId).distinct().toArray(Long[]::new);
+        Set<Long> existingFilms = new HashSet<>(findMany("film.addLikes.films",
+                "SELECT id FROM film WHERE id = ANY(?)", Long.class, (Object) filmIds));
+        Set<Long> existingUsers = new HashSet<>(findMany("film.addLikes.users",
+                "SELECT id FROM users WHERE id = ANY(?)", Long.class, (Object) userIds));
+        Set<FilmLike> batchLikes = new HashSet<>();
+
+        List<FilmLikeResult> results = new ArrayList<>(likes.size());
+        List<Integer> newLikes = new ArrayList<>();
+        for (FilmLike like : likes) {
+            FilmLikeResult.Status status;
+            if (!existingUsers.contains(like.getUserId())) {
+                status = FilmLikeResult.Status.USER_NOT_FOUND;
+            } else if (!existingFilms.contains(like.getFilmId())) {
+                status = FilmLikeResult.Status.FILM_NOT_FOUND;
+            } else if (!batchLikes.add(like)) {
+                status = FilmLikeResult.Status.DUPLICATE;
+            } else {
+                status = FilmLikeResult.Status.CREATED;
+                newLikes.add(results.size());
+            }
+            results.add(new FilmLikeResult(like.getFilmId(), like.getUserId(), status));
+        }
+        if (newLikes.isEmpty()) {
+            return results;
+        }
+
+        int[] inserted = batchUpdate("film.addLikes.insert", """
+                        MERGE INTO film_like fl
+                        USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS l(user_id, film_id)
+                        ON fl.user_id = l.user_id AND fl.film_id = l.film_id
+                        WHEN NOT MATCHED THEN INSERT (user_id, film_id) VALUES (l.user_id, l.film_id)
+                        """,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        FilmLike like = likes.get(newLikes.get(i));
+                        ps.setLong(1, like.getUserId());
+                        ps.setLong(2, like.getFilmId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return newLikes.size();
+                    }
+                });
+        List<FilmLike> added = new ArrayList<>(newLikes.size());
+        Map<Long, Integer> addedByFilm = new HashMap<>();
+        for (int i = 0; i < newLikes.size(); i++) {
+            FilmLike like = likes.get(newLikes.get(i));
+            if (inserted[i] > 0) {
+                added.add(like);
+                addedByFilm.merge(like.getFilmId(), 1, Integer::sum);
+            } else {
+                results.set(newLikes.get(i), new FilmLikeResult(like.getFilmId(), like.getUserId(),
+                        FilmLikeResult.Status.DUPLICATE));
+            }
+        }
+        if (added.isEmpty()) {
+            return results;
+        }
+
+        batchUpdate("film.addLikes.likeCount", "UPDATE film SET like_count = like_count + ? WHERE id = ?",
+                addedByFilm.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .toList());
+        Map<Long, Long> likeCounts = new HashMap<>();
+        forEachRow("film.addLikes.likeCounts",
+                "SELECT film_id, COUNT(*) AS likes FROM film_like WHERE film_id = ANY(?) GROUP BY film_id", rs -> {
+                    likeCounts.put(rs.getLong("film_id"), rs.getLong("likes"));
+                }, (Object) addedByFilm.keySet().toArray(new Long[0]));
+        likeCounts.keySet().forEach(this::filmChanged);
+
+        Map<Long, LikeSet.Builder> addedByUser = new HashMap<>();
+        added.forEach(like -> addedByUser.computeIfAbsent(like.getUserId(), id -> LikeSet.builder())
+                .add(like.getFilmId()));
+        afterCommit(() -> {
+            likeCounts.forEach((filmId, count) -> {
+                leaderboard.setLikes(filmId, count);
+                titleTrie.setLikes(filmId, count);
+            });
+            addedByUser.forEach((userId, films) -> similarityIndex.onLikesAdded(userId, films.build().toLongArray()));
+        });
+        return results;
+    }
+
+    @Override
+    public List<Film> getRecommendations(Long userId, int count) {
+        Boolean userExists = findValue("film.getRecommendations.user",
+                "SELECT EXISTS(SELECT 1 FROM users WHERE id = ?)", Boolean.class, userId);
+        if (!Boolean.TRUE.equals(userExists)) {
+            throw new NotFoundException(String.format("Пользователь с id %d не найден.", userId));
+        }
+        return getFilmsByIds(similarityIndex.recommend(userId, count));
+    }
+
+    private void filmChanged(long filmId) {
+        versions.filmChanged(filmId);
+        filmCache.invalidate(filmId);
+    }
+
+    /**
+     * Переносит название, описание, год и жанры фильма в поиск, автодополнение и рейтинги после фиксации:
+     * при откате они продолжают отдавать прежние данные, как и база.
+     */
+    private void indexFilm(Film film) {
+        long id = film.getId();
+        String name = film.getName();
+        String description = film.getDescription();
+        LocalDate releaseDate = film.getReleaseDate();
+        List<Integer> genreIds = genreIds(film);
+        afterCommit(() -> {
+            leaderboard.setTraits(id, releaseDate, genreIds);
+            searchIndex.put(id, name, description);
+            titleTrie.put(id, name, leaderboard.getLikes(id));
+        });
+    }
+
+    private static List<Integer> genreIds(Film film) {
+        return film.getGenres() == null ? List.of() : film.getGenres().stream().map(Genre::getId).toList();
+    }
+
+    private void checkFilmAndUserExist(Long filmId, Long userId) {
+        String query = "SELECT EXISTS(SELECT 1 FROM film WHERE id = ?) AS film_exists, " +
+                "EXISTS(SELECT 1 FROM users WHERE id = ?) AS user_exists";
+        boolean[] exist = findOne("film.checkFilmAndUser", query, (rs, rowNum) ->
+                new boolean[]{rs.getBoolean("film_exists"), rs.getBoolean("user_exists")}, filmId, userId)
+                .orElseThrow();
+        if (!exist[1]) {
+            throw new NotFoundException(String.format("Пользователь с id %d не найден.", userId));
+        }
+        if (!exist[0]) {
+            throw new NotFoundException(String.format("Фильм с id %d не найден", filmId));
+        }
+    }
+
+    /**
+     * Пересчитывает film.like_count по таблице film_like там, где счётчик разошёлся с ней.
+     * Столбец, добавленный в существующую базу, заполняет schema.sql; пересчёт нужен, если film_like меняли
+     * в обход приложения. При старте включается filmorate.likes.repair-on-startup.
+     */
+    @Transactional
+    public int repairLikeCounts() {
+        String query = """
+                UPDATE film f
+                SET like_count = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.id)
+                WHERE like_count <> (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.id)
+                """;
+        int repaired = execute("film.repairLikeCounts", query);
+        filmCache.invalidateAll();
+        log.info("Счётчики лайков пересчитаны у {} фильмов", repaired);
+        return repaired;
     }
 
-    public Set<Long> getUserIdsFromLikes(long id) {
+    public LikeSet getUserIdsFromLikes(long id) {
         String query = "SELECT user_id FROM film_like WHERE film_id = ?";
-        return new HashSet<>(jdbc.query(query, new LikeUserIdRowMapper(), id));
+        LikeSet.Builder likes = LikeSet.builder();
+        forEachRow("film.getById.likes", query, rs -> {
+            likes.add(rs.getLong("user_id"));
+        }, id);
+        return likes.build();
     }
 
     public List<Genre> getGenre(long id) {
         String query = "SELECT g.id, g.name FROM film_genre fg " +
                 "INNER JOIN genre g ON fg.genre_id = g.id " +
                 "WHERE fg.film_id = ?";
-        return new ArrayList<>(jdbc.query(query, new GenreRowMapper(), id));
+        return new ArrayList<>(findMany("film.getById.genres", query, new GenreRowMapper(), id));
     }
 }
@@ -0,0 +1,365 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов для полнотекстового поиска.
+ * Фильмы нумеруются в порядке добавления, поэтому списки вхождений термов всегда отсортированы и растут
+ * дописыванием в конец. Изменённый или удалённый фильм помечается удалённым и выбрасывается из списков
+ * при уплотнении, когда удалённых становится больше, чем живых.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MIN_STEM_LENGTH = 3;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+    private static final int REBUILD_CHUNK = 65_536;
+    private static final double[] SATURATED = IntStream.rangeClosed(0, Byte.MAX_VALUE)
+            .mapToDouble(weight -> weight / (weight + 1.2))
+            .toArray();
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "ий", "ый", "ой", "ей", "ая",
+            "яя", "ое", "ее", "ые", "ие", "ов", "ев", "ам", "ям", "ах", "ях", "ом", "ем", "ю", "у", "а", "я",
+            "о", "е", "ы", "и", "ь"};
+
+    private final JdbcTemplate jdbc;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Postings> postings = new HashMap<>();
+    private Map<Long, Integer> docsByFilm = new HashMap<>();
+    private long[] filmIds = new long[1024];
+    private BitSet deleted = new BitSet();
+    private int docCount;
+    private int deletedCount;
+
+    public FilmSearchIndex(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<Document> films = new ArrayList<>();
+        jdbc.query("SELECT id, name, description FROM film ORDER BY id", rs -> {
+            films.add(new Document(rs.getLong("id"), rs.getString("name"), rs.getString("description")));
+        });
+        rebuild(films);
+    }
+
+    /**
+     * Тексты разбираются на термы параллельно порциями по {@code REBUILD_CHUNK} фильмов, чтобы в памяти
+     * не держать термы всего каталога; списки вхождений дописываются одним потоком в порядке фильмов.
+     */
+    public void rebuild(List<Document> films) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            postings = new HashMap<>();
+            docsByFilm = new HashMap<>(films.size() * 2);
+            filmIds = new long[Math.max(1024, films.size())];
+            deleted = new BitSet();
+            docCount = 0;
+            deletedCount = 0;
+            for (int from = 0; from < films.size(); from += REBUILD_CHUNK) {
+                IntStream.range(from, Math.min(films.size(), from + REBUILD_CHUNK))
+                        .parallel()
+                        .mapToObj(films::get)
+                        .map(film -> Map.entry(film.filmId(), weightTerms(film)))
+                        .toList()
+                        .forEach(film -> append(film.getKey(), film.getValue()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен: {} фильмов, {} термов, {} мс", films.size(), postings.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Добавляет фильм или заменяет его прежнюю версию.
+     */
+    public void put(long filmId, String name, String description) {
+        Map<String, Integer> terms = weightTerms(new Document(filmId, name, description));
+        lock.writeLock().lock();
+        try {
+            delete(filmId);
+            append(filmId, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            delete(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Фильмы, в которых встречаются все слова запроса, по убыванию релевантности, при равной — по id.
+     * Релевантность — сумма по словам запроса idf слова, умноженного на насыщающийся вес вхождений;
+     * вхождение в название весит втрое больше, чем в описание. Обход ведёт самый редкий терм,
+     * остальные проверяются двоичным поиском по своим спискам.
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[queryTerms.size()];
+            int i = 0;
+            for (String term : queryTerms) {
+                lists[i] = postings.get(term);
+                if (lists[i] == null) {
+                    return List.of();
+                }
+                i++;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            double[] idf = new double[lists.length];
+            int liveDocs = docCount - deletedCount;
+            for (int term = 0; term < lists.length; term++) {
+                int frequency = lists[term].size;
+                idf[term] = Math.log(1 + (Math.max(0, liveDocs - frequency) + 0.5) / (frequency + 0.5));
+            }
+
+            TopDocs top = new TopDocs(limit);
+            int[] positions = new int[lists.length];
+            Postings driver = lists[0];
+            for (int p = 0; p < driver.size; p++) {
+                int doc = driver.docs[p];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                double score = idf[0] * saturate(driver.weights[p]);
+                boolean matched = true;
+                for (int term = 1; term < lists.length && matched; term++) {
+                    Postings list = lists[term];
+                    int found = Arrays.binarySearch(list.docs, positions[term], list.size, doc);
+                    matched = found >= 0;
+                    if (matched) {
+                        positions[term] = found + 1;
+                        score += idf[term] * saturate(list.weights[found]);
+                    } else {
+                        positions[term] = -found - 1;
+                    }
+                }
+                if (matched) {
+                    top.offer(filmIds[doc], score);
+                }
+            }
+            return top.sorted();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Слова текста в нормализованном виде: нижний регистр, «ё» как «е», у кириллических слов отрезано
+     * окончание, если от слова остаётся не меньше трёх букв.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(stem(normalized.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String stem(String word) {
+        if (!Character.UnicodeBlock.CYRILLIC.equals(Character.UnicodeBlock.of(word.charAt(word.length() - 1)))) {
+            return word;
+        }
+        for (String ending : RUSSIAN_ENDINGS) {
+            if (word.length() - ending.length() >= MIN_STEM_LENGTH && word.endsWith(ending)) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    private static Map<String, Integer> weightTerms(Document film) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : tokenize(film.name())) {
+            terms.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(film.description())) {
+            terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        return terms;
+    }
+
+    private static double saturate(int weight) {
+        return SATURATED[weight];
+    }
+
+    private void append(long filmId, Map<String, Integer> terms) {
+        if (docCount == filmIds.length) {
+            filmIds = Arrays.copyOf(filmIds, docCount * 2);
+        }
+        int doc = docCount++;
+        filmIds[doc] = filmId;
+        docsByFilm.put(filmId, doc);
+        terms.forEach((term, weight) -> postings.computeIfAbsent(term, key -> new Postings()).add(doc, weight));
+    }
+
+    private void delete(long filmId) {
+        Integer doc = docsByFilm.remove(filmId);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        deletedCount++;
+        if (deletedCount >= MIN_DELETED_TO_COMPACT && deletedCount > docCount - deletedCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Перенумеровывает живые фильмы подряд и выбрасывает удалённые из списков вхождений.
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                renumbered[doc] = -1;
+            } else {
+                renumbered[doc] = live;
+                filmIds[live] = filmIds[doc];
+                docsByFilm.put(filmIds[live], live);
+                live++;
+            }
+        }
+        postings.values().removeIf(list -> list.compact(renumbered) == 0);
+        docCount = live;
+        deletedCount = 0;
+        deleted = new BitSet();
+    }
+
+    public record Document(long filmId, String name, String description) {
+    }
+
+    /**
+     * Список вхождений терма: номера фильмов по возрастанию и вес терма в каждом из них.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        byte[] weights = new byte[4];
+        int size;
+
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = (byte) Math.min(weight, Byte.MAX_VALUE);
+            size++;
+        }
+
+        int compact(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (renumbered[docs[i]] >= 0) {
+                    docs[kept] = renumbered[docs[i]];
+                    weights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    /**
+     * Лучшие limit результатов: куча-минимум, в корне худший из отобранных.
+     */
+    private static final class TopDocs {
+        private final long[] filmIds;
+        private final double[] scores;
+        private int size;
+
+        TopDocs(int limit) {
+            filmIds = new long[limit];
+            scores = new double[limit];
+        }
+
+        void offer(long filmId, double score) {
+            if (size < filmIds.length) {
+                int index = size++;
+                while (index > 0 && better(scores[(index - 1) / 2], filmIds[(index - 1) / 2], score, filmId)) {
+                    int parent = (index - 1) / 2;
+                    filmIds[index] = filmIds[parent];
+                    scores[index] = scores[parent];
+                    index = parent;
+                }
+                filmIds[index] = filmId;
+                scores[index] = score;
+            } else if (size > 0 && better(score, filmId, scores[0], filmIds[0])) {
+                int index = 0;
+                while (2 * index + 1 < size) {
+                    int child = 2 * index + 1;
+                    if (child + 1 < size && better(scores[child], filmIds[child], scores[child + 1],
+                            filmIds[child + 1])) {
+                        child++;
+                    }
+                    if (!better(score, filmId, scores[child], filmIds[child])) {
+                        break;
+                    }
+                    filmIds[index] = filmIds[child];
+                    scores[index] = scores[child];
+                    index = child;
+                }
+                filmIds[index] = filmId;
+                scores[index] = score;
+            }
+        }
+
+        /**
+         * Порядок выдачи: выше оценка, при равной — меньший id.
+         */
+        private static boolean better(double score, long filmId, double otherScore, long otherFilmId) {
+            return score != otherScore ? score > otherScore : filmId < otherFilmId;
+        }
+
+        List<Long> sorted() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                    ? Double.compare(scores[b], scores[a])
+                    : Long.compare(filmIds[a], filmIds[b]));
+            List<Long> result = new ArrayList<>(size);
+            for (Integer i : order) {
+                result.add(filmIds[i]);
+            }
+            return result;
+        }
+    }
+}
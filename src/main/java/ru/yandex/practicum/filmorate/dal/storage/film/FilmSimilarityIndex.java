@@ -0,0 +1,496 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Похожие фильмы для рекомендаций (item-to-item): для каждого фильма хранятся до {@code neighbors} фильмов
+ * с наибольшим косинусным сходством по лайкам и число пользователей, лайкнувших оба фильма.
+ * Рядом хранятся сами лайки — отсортированные массивы фильмов каждого пользователя и пользователей каждого
+ * фильма, — поэтому рекомендации и обновления не обращаются к базе.
+ * <p>
+ * Полная перестройка считается параллельно в fork-join пуле. Между перестройками лайк меняет счётчики известных
+ * пар, а новая пара попадает в список, если в нём есть место или её сходство выше, чем у худшей из отобранных;
+ * её счётчик считается пересечением пользователей двух фильмов и точен сразу. Повторный лайк и удаление
+ * отсутствующего ничего не меняют, поэтому изменения, пришедшие во время перестройки, повторяются на построенном
+ * индексе без риска учесть дважды лайк, который уже попал в прочитанные данные.
+ * <p>
+ * Изменения выполняются по одному под общей блокировкой, чтение идёт без блокировок: массивы и записи
+ * не меняются после публикации.
+ */
+@Slf4j
+@Component
+public class FilmSimilarityIndex {
+    private static final int FILMS_PER_TASK = 64;
+    private static final long[] NONE = new long[0];
+
+    private final JdbcTemplate jdbc;
+    private final int neighbors;
+    private final Object writes = new Object();
+    private volatile State state = new State(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+            new ConcurrentHashMap<>());
+    private List<Consumer<State>> pending;
+
+    public FilmSimilarityIndex(JdbcTemplate jdbc, @Value("${filmorate.recommendations.neighbors:50}") int neighbors) {
+        this.jdbc = jdbc;
+        this.neighbors = neighbors;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.rebuild-interval:PT6H}",
+            initialDelayString = "${filmorate.recommendations.rebuild-interval:PT6H}")
+    public void rebuild() {
+        rebuild(() -> {
+            LikeMatrix.Builder builder = LikeMatrix.builder();
+            jdbc.query("SELECT user_id, film_id FROM film_like", rs -> {
+                builder.add(rs.getLong("user_id"), rs.getLong("film_id"));
+            });
+            return builder.build();
+        });
+    }
+
+    public void rebuild(LikeMatrix likes) {
+        rebuild(() -> likes);
+    }
+
+    /**
+     * Перестраивает индекс по снимку лайков из source. Изменения, пришедшие с начала перестройки,
+     * повторяются на построенном индексе перед его публикацией.
+     */
+    public synchronized void rebuild(Supplier<LikeMatrix> source) {
+        synchronized (writes) {
+            pending = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            LikeMatrix likes = source.get();
+            State rebuilt = build(likes);
+            int replayed;
+            synchronized (writes) {
+                pending.forEach(change -> change.accept(rebuilt));
+                replayed = pending.size();
+                state = rebuilt;
+            }
+            log.info("Индекс похожих фильмов построен: {} фильмов, {} лайков, {} изменений повторено, {} мс",
+                    likes.filmCount(), likes.likeCount(), replayed, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            synchronized (writes) {
+                pending = null;
+            }
+        }
+    }
+
+    public void onLikeAdded(long userId, long filmId) {
+        apply(current -> current.addLike(userId, filmId));
+    }
+
+    public void onLikesAdded(long userId, long[] filmIds) {
+        long[] added = filmIds.clone();
+        apply(current -> {
+            for (long filmId : added) {
+                current.addLike(userId, filmId);
+            }
+        });
+    }
+
+    public void onLikeRemoved(long userId, long filmId) {
+        apply(current -> current.removeLike(userId, filmId));
+    }
+
+    public void removeFilm(long filmId) {
+        apply(current -> current.removeFilm(filmId));
+    }
+
+    /**
+     * Фильмы, похожие на лайкнутые пользователем, кроме уже лайкнутых. Оценка кандидата — сумма косинусного
+     * сходства со всеми фильмами пользователя. Стоимость не зависит от числа лайков в базе:
+     * O(K * L), где L — число лайков пользователя, K — размер списка похожих.
+     */
+    public List<Long> recommend(long userId, int limit) {
+        State current = state;
+        long[] liked = current.filmsByUser.getOrDefault(userId, NONE);
+        Map<Long, Double> scores = new HashMap<>();
+        for (long film : liked) {
+            Neighbors filmNeighbors = current.neighbors.get(film);
+            if (filmNeighbors == null) {
+                continue;
+            }
+            for (int i = 0; i < filmNeighbors.filmIds().length; i++) {
+                long candidate = filmNeighbors.filmIds()[i];
+                Neighbors candidateNeighbors = current.neighbors.get(candidate);
+                if (candidateNeighbors == null || filmNeighbors.coLikes()[i] == 0
+                        || Arrays.binarySearch(liked, candidate) >= 0) {
+                    continue;
+                }
+                double similarity = cosine(filmNeighbors.coLikes()[i], filmNeighbors.likes(),
+                        candidateNeighbors.likes());
+                scores.merge(candidate, similarity, Double::sum);
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Применяет изменение к индексу; во время перестройки оно ещё и запоминается для повтора.
+     */
+    private void apply(Consumer<State> change) {
+        synchronized (writes) {
+            change.accept(state);
+            if (pending != null) {
+                pending.add(change);
+            }
+        }
+    }
+
+    private State build(LikeMatrix likes) {
+        Neighbors[] result = new Neighbors[likes.filmCount()];
+        long[][] filmUsers = new long[likes.filmCount()][];
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(likes.filmCount()));
+        ForkJoinPool.commonPool().invoke(new BuildTask(likes, result, filmUsers, scratch, 0, result.length));
+
+        Map<Long, Neighbors> neighborsByFilm = new ConcurrentHashMap<>(result.length * 2);
+        Map<Long, long[]> usersByFilm = new ConcurrentHashMap<>(result.length * 2);
+        for (int film = 0; film < result.length; film++) {
+            neighborsByFilm.put(likes.filmIds[film], result[film]);
+            usersByFilm.put(likes.filmIds[film], filmUsers[film]);
+        }
+        Map<Long, long[]> filmsByUser = new ConcurrentHashMap<>(likes.userIds.length * 2);
+        for (int user = 0; user < likes.userIds.length; user++) {
+            long[] films = new long[likes.userOffsets[user + 1] - likes.userOffsets[user]];
+            for (int i = 0; i < films.length; i++) {
+                films[i] = likes.filmIds[likes.userFilms[likes.userOffsets[user] + i]];
+            }
+            Arrays.sort(films);
+            filmsByUser.put(likes.userIds[user], films);
+        }
+        return new State(filmsByUser, usersByFilm, neighborsByFilm);
+    }
+
+    private static double cosine(int coLikes, int likes, int otherLikes) {
+        return likes == 0 || otherLikes == 0 ? 0 : coLikes / Math.sqrt((double) likes * otherLikes);
+    }
+
+    private static long[] with(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        int insertAt = -position - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, insertAt);
+        updated[insertAt] = id;
+        System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+        return updated;
+    }
+
+    private static long[] without(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+        return updated;
+    }
+
+    private static int intersectionSize(long[] first, long[] second) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Лайки и списки похожих одного построения. Методы изменения вызываются только под блокировкой writes.
+     */
+    private final class State {
+        final Map<Long, long[]> filmsByUser;
+        final Map<Long, long[]> usersByFilm;
+        final Map<Long, Neighbors> neighbors;
+
+        State(Map<Long, long[]> filmsByUser, Map<Long, long[]> usersByFilm, Map<Long, Neighbors> neighbors) {
+            this.filmsByUser = filmsByUser;
+            this.usersByFilm = usersByFilm;
+            this.neighbors = neighbors;
+        }
+
+        void addLike(long user, long film) {
+            long[] userFilms = filmsByUser.getOrDefault(user, NONE);
+            if (Arrays.binarySearch(userFilms, film) >= 0) {
+                return;
+            }
+            filmsByUser.put(user, with(userFilms, film));
+            long[] filmUsers = with(usersByFilm.getOrDefault(film, NONE), user);
+            usersByFilm.put(film, filmUsers);
+            neighbors.put(film, neighbors.getOrDefault(film, Neighbors.EMPTY).withLikes(filmUsers.length));
+            for (long other : userFilms) {
+                changeCoLikes(film, other, 1);
+                changeCoLikes(other, film, 1);
+            }
+        }
+
+        void removeLike(long user, long film) {
+            long[] userFilms = filmsByUser.get(user);
+            if (userFilms == null || Arrays.binarySearch(userFilms, film) < 0) {
+                return;
+            }
+            long[] remaining = without(userFilms, film);
+            putOrRemove(filmsByUser, user, remaining);
+            long[] filmUsers = without(usersByFilm.getOrDefault(film, NONE), user);
+            putOrRemove(usersByFilm, film, filmUsers);
+            neighbors.computeIfPresent(film, (id, current) -> current.withLikes(filmUsers.length));
+            for (long other : remaining) {
+                changeCoLikes(film, other, -1);
+                changeCoLikes(other, film, -1);
+            }
+        }
+
+        void removeFilm(long film) {
+            for (long user : usersByFilm.getOrDefault(film, NONE)) {
+                long[] userFilms = filmsByUser.get(user);
+                if (userFilms != null) {
+                    putOrRemove(filmsByUser, user, without(userFilms, film));
+                }
+            }
+            usersByFilm.remove(film);
+            neighbors.remove(film);
+        }
+
+        /**
+         * Меняет счётчик пары в списке film. Пара, которой нет в списке, при добавлении лайка попадает в него,
+         * если есть место или её сходство выше, чем у худшей из отобранных; тогда худшая вытесняется.
+         * Пересечение пользователей считается, только если пара может пройти: совместных лайков
+         * не больше, чем лайков у менее популярного из двух фильмов.
+         */
+        private void changeCoLikes(long film, long other, int delta) {
+            Neighbors current = neighbors.get(film);
+            if (current == null) {
+                return;
+            }
+            int position = current.indexOf(other);
+            if (position >= 0) {
+                neighbors.put(film, current.withCoLikes(position, Math.max(0, current.coLikes()[position] + delta)));
+                return;
+            }
+            if (delta < 0) {
+                return;
+            }
+            long[] otherUsers = usersByFilm.getOrDefault(other, NONE);
+            if (current.filmIds().length < FilmSimilarityIndex.this.neighbors) {
+                int coLikes = intersectionSize(usersByFilm.getOrDefault(film, NONE), otherUsers);
+                neighbors.put(film, current.withPair(current.filmIds().length, other, coLikes));
+                return;
+            }
+            int weakest = 0;
+            double weakestScore = Double.MAX_VALUE;
+            for (int i = 0; i < current.filmIds().length; i++) {
+                double score = cosine(current.coLikes()[i], current.likes(), likesOf(current.filmIds()[i]));
+                if (score < weakestScore) {
+                    weakest = i;
+                    weakestScore = score;
+                }
+            }
+            if (cosine(Math.min(current.likes(), otherUsers.length), current.likes(), otherUsers.length)
+                    <= weakestScore) {
+                return;
+            }
+            int coLikes = intersectionSize(usersByFilm.getOrDefault(film, NONE), otherUsers);
+            if (cosine(coLikes, current.likes(), otherUsers.length) > weakestScore) {
+                neighbors.put(film, current.withPair(weakest, other, coLikes));
+            }
+        }
+
+        private int likesOf(long film) {
+            return usersByFilm.getOrDefault(film, NONE).length;
+        }
+
+        private static void putOrRemove(Map<Long, long[]> map, long key, long[] ids) {
+            if (ids.length == 0) {
+                map.remove(key);
+            } else {
+                map.put(key, ids);
+            }
+        }
+    }
+
+    /**
+     * Список похожих фильма. Массивы не меняются после публикации: изменение создаёт новую запись.
+     */
+    record Neighbors(int likes, long[] filmIds, int[] coLikes) {
+        static final Neighbors EMPTY = new Neighbors(0, new long[0], new int[0]);
+
+        Neighbors withLikes(int count) {
+            return new Neighbors(count, filmIds, coLikes);
+        }
+
+        int indexOf(long film) {
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] == film) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Neighbors withCoLikes(int position, int count) {
+            int[] counts = coLikes.clone();
+            counts[position] = count;
+            return new Neighbors(likes, filmIds, counts);
+        }
+
+        /**
+         * Ставит пару в позицию position; позиция, равная длине списка, добавляет её в конец.
+         */
+        Neighbors withPair(int position, long film, int count) {
+            int length = Math.max(filmIds.length, position + 1);
+            long[] ids = Arrays.copyOf(filmIds, length);
+            int[] counts = Arrays.copyOf(coLikes, length);
+            ids[position] = film;
+            counts[position] = count;
+            return new Neighbors(likes, ids, counts);
+        }
+    }
+
+    /**
+     * Счётчик совместных лайков по всем фильмам и список затронутых ячеек. Один на поток-исполнитель
+     * перестройки: после каждого фильма обнуляются только затронутые ячейки.
+     */
+    private record Scratch(int[] counts, int[] touched) {
+        Scratch(int filmCount) {
+            this(new int[filmCount], new int[filmCount]);
+        }
+    }
+
+    /**
+     * Считает списки похожих и пользователей для диапазона фильмов [from, to).
+     */
+    private final class BuildTask extends RecursiveAction {
+        private final LikeMatrix likes;
+        private final Neighbors[] result;
+        private final long[][] filmUsers;
+        private final ThreadLocal<Scratch> scratch;
+        private final int from;
+        private final int to;
+
+        BuildTask(LikeMatrix likes, Neighbors[] result, long[][] filmUsers, ThreadLocal<Scratch> scratch,
+                  int from, int to) {
+            this.likes = likes;
+            this.result = result;
+            this.filmUsers = filmUsers;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILMS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BuildTask(likes, result, filmUsers, scratch, from, middle),
+                        new BuildTask(likes, result, filmUsers, scratch, middle, to));
+                return;
+            }
+            int[] counts = scratch.get().counts();
+            int[] touched = scratch.get().touched();
+            for (int film = from; film < to; film++) {
+                int touchedSize = 0;
+                long[] users = new long[likeCount(film)];
+                for (int i = likes.filmOffsets[film]; i < likes.filmOffsets[film + 1]; i++) {
+                    int user = likes.filmUsers[i];
+                    users[i - likes.filmOffsets[film]] = likes.userIds[user];
+                    for (int j = likes.userOffsets[user]; j < likes.userOffsets[user + 1]; j++) {
+                        int other = likes.userFilms[j];
+                        if (other != film && counts[other]++ == 0) {
+                            touched[touchedSize++] = other;
+                        }
+                    }
+                }
+                Arrays.sort(users);
+                filmUsers[film] = users;
+                result[film] = select(film, counts, touched, touchedSize);
+                for (int i = 0; i < touchedSize; i++) {
+                    counts[touched[i]] = 0;
+                }
+            }
+        }
+
+        /**
+         * Отбор лучших по сходству кучей-минимумом на массивах: в корне худший из отобранных.
+         */
+        private Neighbors select(int film, int[] counts, int[] touched, int touchedSize) {
+            int filmLikes = likeCount(film);
+            int[] heap = new int[Math.min(neighbors, touchedSize)];
+            double[] scores = new double[heap.length];
+            int size = 0;
+            for (int i = 0; i < touchedSize; i++) {
+                int other = touched[i];
+                double score = cosine(counts[other], filmLikes, likeCount(other));
+                if (size < heap.length) {
+                    int index = size++;
+                    while (index > 0 && scores[(index - 1) / 2] > score) {
+                        heap[index] = heap[(index - 1) / 2];
+                        scores[index] = scores[(index - 1) / 2];
+                        index = (index - 1) / 2;
+                    }
+                    heap[index] = other;
+                    scores[index] = score;
+                } else if (size > 0 && score > scores[0]) {
+                    int index = 0;
+                    while (2 * index + 1 < size) {
+                        int child = 2 * index + 1;
+                        if (child + 1 < size && scores[child + 1] < scores[child]) {
+                            child++;
+                        }
+                        if (scores[child] >= score) {
+                            break;
+                        }
+                        heap[index] = heap[child];
+                        scores[index] = scores[child];
+                        index = child;
+                    }
+                    heap[index] = other;
+                    scores[index] = score;
+                }
+            }
+            long[] filmIds = new long[size];
+            int[] coLikes = new int[size];
+            for (int i = 0; i < size; i++) {
+                filmIds[i] = likes.filmIds[heap[i]];
+                coLikes[i] = counts[heap[i]];
+            }
+            return new Neighbors(filmLikes, filmIds, coLikes);
+        }
+
+        private int likeCount(int film) {
+            return likes.filmOffsets[film + 1] - likes.filmOffsets[film];
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package ru.yandex.practicum.filmorate.dal.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmLikeResult;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Film getById(Long id);
@@ -17,11 +22,25 @@ public interface FilmStorage {
 
     List<Film> getFilms();
 
+    List<Film> getFilmsPage(long afterId, int limit);
+
+    void forEachFilm(int fetchSize, Consumer<Film> action);
+
     void delete(Long id);
 
-    Collection<Film> getPopularFilms(int count);
+    String getVersionTag(Long id);
+
+    Collection<Film> getPopularFilms(int count, Integer genreId, Integer year);
+
+    List<Film> searchFilms(String query, int limit);
+
+    List<Film> autocomplete(String prefix, int limit);
+
+    List<Film> getRecommendations(Long userId, int count);
 
     void addLike(Long filmId, Long userId);
 
+    List<FilmLikeResult> addLikes(List<FilmLike> likes);
+
     void removeLike(Long filmId, Long userId);
 }
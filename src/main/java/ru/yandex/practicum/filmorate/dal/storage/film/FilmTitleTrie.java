@@ -0,0 +1,338 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сжатое префиксное дерево названий фильмов для подсказок при вводе. Цепочки узлов с одним потомком
+ * склеены в один узел с меткой из нескольких символов, поэтому узлов не больше, чем вдвое больше названий.
+ * Каждый узел помнит наибольшее число лайков в своём поддереве: подсказки выбираются обходом
+ * «сначала лучший» и не просматривают всё поддерево префикса.
+ */
+@Slf4j
+@Component
+public class FilmTitleTrie {
+    private static final long[] NO_FILMS = new long[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final JdbcTemplate jdbc;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Node> nodesByFilm = new HashMap<>();
+    private Node root = new Node(new char[0], null);
+
+    public FilmTitleTrie(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            root = new Node(new char[0], null);
+            nodesByFilm.clear();
+            jdbc.query("SELECT id, name, like_count FROM film", rs -> {
+                insert(rs.getLong("id"), normalize(rs.getString("name")), rs.getLong("like_count"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Дерево названий построено: {} фильмов", nodesByFilm.size());
+    }
+
+    /**
+     * Добавляет фильм или переносит его под новое название.
+     */
+    public void put(long filmId, String name, long likes) {
+        lock.writeLock().lock();
+        try {
+            delete(filmId);
+            insert(filmId, normalize(name), likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            delete(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setLikes(long filmId, long likes) {
+        lock.writeLock().lock();
+        try {
+            Node node = nodesByFilm.get(filmId);
+            if (node != null) {
+                node.setLikes(filmId, likes);
+                updateBest(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * До limit фильмов, название которых начинается с prefix, по убыванию лайков. Из очереди фильмы
+     * достаются раньше узлов с тем же числом лайков, поэтому обход останавливается, как только набрано
+     * limit фильмов; порядок фильмов с равным числом лайков зависит от того, когда раскрыт их узел.
+     */
+    public List<Long> complete(String prefix, int limit) {
+        char[] key = normalize(prefix).toCharArray();
+        lock.readLock().lock();
+        try {
+            Node start = find(key);
+            if (start == null) {
+                return List.of();
+            }
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+            queue.add(new Candidate(start.best, Long.MAX_VALUE, start));
+            List<Long> result = new ArrayList<>(limit);
+            while (result.size() < limit && !queue.isEmpty()) {
+                Candidate candidate = queue.poll();
+                if (candidate.node() == null) {
+                    result.add(candidate.filmId());
+                    continue;
+                }
+                Node node = candidate.node();
+                for (int i = 0; i < node.films.length; i += 2) {
+                    queue.add(new Candidate(node.films[i + 1], node.films[i], null));
+                }
+                for (Node child : node.children) {
+                    queue.add(new Candidate(child.best, Long.MAX_VALUE, child));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Название для поиска: нижний регистр, «ё» как «е», пробелы по краям убраны, подряд идущие — схлопнуты.
+     */
+    static String normalize(String name) {
+        return name.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private Node find(char[] key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length) {
+            node = node.child(key[i]);
+            if (node == null) {
+                return null;
+            }
+            int common = node.commonPrefix(key, i);
+            if (common < node.label.length && i + common < key.length) {
+                return null;
+            }
+            i += common;
+        }
+        return node;
+    }
+
+    private void insert(long filmId, String name, long likes) {
+        char[] key = name.toCharArray();
+        Node node = root;
+        int i = 0;
+        while (i < key.length) {
+            Node child = node.child(key[i]);
+            if (child == null) {
+                child = new Node(Arrays.copyOfRange(key, i, key.length), node);
+                node.addChild(child);
+                node = child;
+                break;
+            }
+            int common = child.commonPrefix(key, i);
+            if (common < child.label.length) {
+                child = child.split(common);
+            }
+            node = child;
+            i += common;
+        }
+        node.addFilm(filmId, likes);
+        nodesByFilm.put(filmId, node);
+        updateBest(node);
+    }
+
+    private void delete(long filmId) {
+        Node node = nodesByFilm.remove(filmId);
+        if (node == null) {
+            return;
+        }
+        node.removeFilm(filmId);
+        Node parent = node.parent;
+        if (node != root && node.films.length == 0 && node.children.length == 0) {
+            parent.removeChild(node);
+            node = parent;
+        }
+        if (node != root && node.films.length == 0 && node.children.length == 1) {
+            node = node.mergeWithChild();
+        }
+        updateBest(node);
+    }
+
+    /**
+     * Пересчитывает максимум лайков от узла к корню, пока он меняется.
+     */
+    private void updateBest(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            long best = current.computeBest();
+            if (best == current.best && current != node) {
+                return;
+            }
+            current.best = best;
+        }
+    }
+
+    /**
+     * Элемент очереди обхода: узел (filmId не важен) или фильм (node == null). Сначала больше лайков,
+     * при равенстве фильмы раньше узлов, среди фильмов меньший id раньше.
+     */
+    private record Candidate(long likes, long filmId, Node node) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            if (likes != other.likes) {
+                return Long.compare(other.likes, likes);
+            }
+            return Long.compare(filmId, other.filmId);
+        }
+    }
+
+    /**
+     * Узел дерева. films — пары (id фильма, лайки) подряд для названий, заканчивающихся в этом узле;
+     * дети отсортированы по первому символу метки.
+     */
+    private static final class Node {
+        char[] label;
+        Node parent;
+        Node[] children = NO_CHILDREN;
+        long[] films = NO_FILMS;
+        long best;
+
+        Node(char[] label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char value = children[middle].label[0];
+                if (value < first) {
+                    low = middle + 1;
+                } else if (value > first) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            return null;
+        }
+
+        int commonPrefix(char[] key, int from) {
+            int common = 0;
+            while (common < label.length && from + common < key.length && label[common] == key[from + common]) {
+                common++;
+            }
+            return common;
+        }
+
+        void addChild(Node child) {
+            int index = 0;
+            while (index < children.length && children[index].label[0] < child.label[0]) {
+                index++;
+            }
+            Node[] updated = new Node[children.length + 1];
+            System.arraycopy(children, 0, updated, 0, index);
+            updated[index] = child;
+            System.arraycopy(children, index, updated, index + 1, children.length - index);
+            children = updated;
+        }
+
+        void removeChild(Node child) {
+            Node[] updated = new Node[children.length - 1];
+            int next = 0;
+            for (Node current : children) {
+                if (current != child) {
+                    updated[next++] = current;
+                }
+            }
+            children = updated.length == 0 ? NO_CHILDREN : updated;
+        }
+
+        /**
+         * Отделяет первые length символов метки в новый узел-родитель и возвращает его.
+         */
+        Node split(int length) {
+            Node head = new Node(Arrays.copyOf(label, length), parent);
+            head.children = new Node[]{this};
+            head.best = best;
+            parent.children[Arrays.asList(parent.children).indexOf(this)] = head;
+            label = Arrays.copyOfRange(label, length, label.length);
+            parent = head;
+            return head;
+        }
+
+        /**
+         * Склеивает узел без фильмов с его единственным ребёнком и возвращает ребёнка.
+         */
+        Node mergeWithChild() {
+            Node child = children[0];
+            char[] merged = Arrays.copyOf(label, label.length + child.label.length);
+            System.arraycopy(child.label, 0, merged, label.length, child.label.length);
+            child.label = merged;
+            child.parent = parent;
+            parent.children[Arrays.asList(parent.children).indexOf(this)] = child;
+            return child;
+        }
+
+        void addFilm(long filmId, long likes) {
+            films = Arrays.copyOf(films, films.length + 2);
+            films[films.length - 2] = filmId;
+            films[films.length - 1] = likes;
+        }
+
+        void removeFilm(long filmId) {
+            for (int i = 0; i < films.length; i += 2) {
+                if (films[i] == filmId) {
+                    long[] updated = new long[films.length - 2];
+                    System.arraycopy(films, 0, updated, 0, i);
+                    System.arraycopy(films, i + 2, updated, i, films.length - i - 2);
+                    films = updated.length == 0 ? NO_FILMS : updated;
+                    return;
+                }
+            }
+        }
+
+        void setLikes(long filmId, long likes) {
+            for (int i = 0; i < films.length; i += 2) {
+                if (films[i] == filmId) {
+                    films[i + 1] = likes;
+                }
+            }
+        }
+
+        long computeBest() {
+            long max = 0;
+            for (int i = 1; i < films.length; i += 2) {
+                max = Math.max(max, films[i]);
+            }
+            for (Node child : children) {
+                max = Math.max(max, child.best);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Снимок таблицы film_like в виде разреженной матрицы: лайки сгруппированы и по пользователям, и по фильмам.
+ * Пользователи и фильмы пронумерованы подряд с нуля, строки хранятся смещениями в общих массивах int,
+ * поэтому 10 млн лайков занимают около 80 МБ.
+ */
+public final class LikeMatrix {
+    final long[] userIds;
+    final long[] filmIds;
+    final int[] userOffsets;
+    final int[] userFilms;
+    final int[] filmOffsets;
+    final int[] filmUsers;
+
+    private LikeMatrix(long[] userIds, long[] filmIds, int[] userOffsets, int[] userFilms, int[] filmOffsets,
+                       int[] filmUsers) {
+        this.userIds = userIds;
+        this.filmIds = filmIds;
+        this.userOffsets = userOffsets;
+        this.userFilms = userFilms;
+        this.filmOffsets = filmOffsets;
+        this.filmUsers = filmUsers;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int filmCount() {
+        return filmIds.length;
+    }
+
+    public int likeCount() {
+        return userFilms.length;
+    }
+
+    /**
+     * Накопитель пар (пользователь, фильм) в любом порядке; повторы пар не допускаются.
+     */
+    public static final class Builder {
+        private final Map<Long, Integer> userIndexes = new HashMap<>();
+        private final Map<Long, Integer> filmIndexes = new HashMap<>();
+        private int[] users = new int[1024];
+        private int[] films = new int[1024];
+        private int size;
+
+        public Builder add(long userId, long filmId) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                films = Arrays.copyOf(films, size * 2);
+            }
+            users[size] = userIndexes.computeIfAbsent(userId, id -> userIndexes.size());
+            films[size] = filmIndexes.computeIfAbsent(filmId, id -> filmIndexes.size());
+            size++;
+            return this;
+        }
+
+        public LikeMatrix build() {
+            long[] userIds = new long[userIndexes.size()];
+            userIndexes.forEach((id, index) -> userIds[index] = id);
+            long[] filmIds = new long[filmIndexes.size()];
+            filmIndexes.forEach((id, index) -> filmIds[index] = id);
+            int[] userOffsets = new int[userIndexes.size() + 1];
+            int[] userFilms = group(users, films, userOffsets);
+            int[] filmOffsets = new int[filmIndexes.size() + 1];
+            int[] filmUsers = group(films, users, filmOffsets);
+            return new LikeMatrix(userIds, filmIds, userOffsets, userFilms, filmOffsets, filmUsers);
+        }
+
+        /**
+         * Сортировка подсчётом: значения values раскладываются по строкам keys, offsets заполняются началами строк.
+         */
+        private int[] group(int[] keys, int[] values, int[] offsets) {
+            for (int i = 0; i < size; i++) {
+                offsets[keys[i] + 1]++;
+            }
+            for (int row = 1; row < offsets.length; row++) {
+                offsets[row] += offsets[row - 1];
+            }
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            int[] grouped = new int[size];
+            for (int i = 0; i < size; i++) {
+                grouped[next[keys[i]]++] = values[i];
+            }
+            return grouped;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package ru.yandex.practicum.filmorate.dal.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по количеству лайков в памяти. Изменение счётчика стоит O(log n), чтение топа из K фильмов — O(K).
+ * При равном количестве лайков выше стоит фильм с меньшим id. Фильмы без лайков в рейтинг не попадают.
+ * Кроме общего рейтинга ведутся отдельные рейтинги по каждому жанру, году выпуска и их сочетанию,
+ * поэтому топ с фильтром тоже читается за O(K), без просмотра каталога.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularFilmsLeaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+    private static final String TOP_QUERY = "SELECT f.id AS film_id FROM film f " +
+            "WHERE f.like_count > 0 " +
+            "AND (CAST(? AS INT) IS NULL OR f.id IN (SELECT film_id FROM film_genre WHERE genre_id = ?)) " +
+            "AND (CAST(? AS INT) IS NULL OR EXTRACT(YEAR FROM f.release_date) = ?) " +
+            "ORDER BY f.like_count DESC, f.id LIMIT ?";
+
+    private final JdbcTemplate jdbc;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, Traits> traits = new HashMap<>();
+    private final Map<Filter, NavigableSet<Entry>> rankings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        String query = "SELECT film_id, COUNT(user_id) AS likes FROM film_like GROUP BY film_id";
+        Map<Long, Entry> loaded = new HashMap<>();
+        jdbc.query(query, rs -> {
+            long filmId = rs.getLong("film_id");
+            loaded.put(filmId, new Entry(filmId, rs.getLong("likes")));
+        });
+        String traitsQuery = "SELECT f.id, EXTRACT(YEAR FROM f.release_date) AS release_year, fg.genre_id " +
+                "FROM film f LEFT JOIN film_genre fg ON fg.film_id = f.id";
+        Map<Long, Integer> years = new HashMap<>();
+        Map<Long, List<Integer>> genres = new HashMap<>();
+        jdbc.query(traitsQuery, rs -> {
+            long filmId = rs.getLong("id");
+            years.put(filmId, rs.getInt("release_year"));
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                genres.computeIfAbsent(filmId, id -> new ArrayList<>()).add(genreId);
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            traits.clear();
+            rankings.clear();
+            years.forEach((filmId, year) -> traits.put(filmId, Traits.of(year, genres.get(filmId))));
+            loaded.values().forEach(entry -> put(entry.filmId(), entry.likes()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Рейтинг популярных фильмов построен: {} фильмов с лайками, {} рейтингов с фильтрами",
+                loaded.size(), rankings.size());
+    }
+
+    /**
+     * Запоминает год выпуска и жанры фильма и переносит его в соответствующие рейтинги.
+     * Вызывается при создании и изменении фильма.
+     */
+    public void setTraits(long filmId, LocalDate releaseDate, Collection<Integer> genreIds) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            long likes = entry == null ? 0 : entry.likes();
+            put(filmId, 0);
+            traits.put(filmId, Traits.of(releaseDate.getYear(), genreIds));
+            put(filmId, likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void increment(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void decrement(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public void setLikes(long filmId, long likes) {
+        lock.writeLock().lock();
+        try {
+            put(filmId, likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            put(filmId, 0);
+            traits.remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> getTop(int count) {
+        return getTop(count, null, null);
+    }
+
+    /**
+     * Топ фильмов с необязательными фильтрами по жанру и году выпуска; null — без фильтра.
+     */
+    public List<Long> getTop(int count, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> ranking = rankings.getOrDefault(new Filter(genreId, year),
+                    Collections.emptyNavigableSet());
+            List<Long> top = new ArrayList<>(Math.min(count, ranking.size()));
+            Iterator<Entry> iterator = ranking.iterator();
+            while (top.size() < count && iterator.hasNext()) {
+                top.add(iterator.next().filmId());
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLikes(long filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry == null ? 0 : entry.likes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Топ по film.like_count с тем же порядком, что и в памяти: обход индекса film_like_count_id_idx
+     * без агрегации film_like. Совпадение с рейтингом в памяти, построенным по film_like, заодно
+     * проверяет и сам счётчик.
+     */
+    public List<Long> getTopFromDatabase(int count) {
+        return getTopFromDatabase(count, null, null);
+    }
+
+    public List<Long> getTopFromDatabase(int count, Integer genreId, Integer year) {
+        return jdbc.query(TOP_QUERY, (rs, rowNum) -> rs.getLong("film_id"), genreId, genreId, year, year, count);
+    }
+
+    public boolean isConsistentWithDatabase(int count) {
+        return isConsistentWithDatabase(count, null, null);
+    }
+
+    public boolean isConsistentWithDatabase(int count, Integer genreId, Integer year) {
+        List<Long> expected = getTopFromDatabase(count, genreId, year);
+        List<Long> actual = getTop(count, genreId, year);
+        if (!expected.equals(actual)) {
+            log.warn("Рейтинг популярных фильмов расходится с базой: ожидалось {}, в памяти {}", expected, actual);
+            return false;
+        }
+        return true;
+    }
+
+    private void changeLikes(long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            put(filmId, (entry == null ? 0 : entry.likes()) + delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(long filmId, long likes) {
+        Traits filmTraits = traits.getOrDefault(filmId, Traits.UNKNOWN);
+        Entry previous = entries.remove(filmId);
+        if (previous != null) {
+            for (Filter filter : filmTraits.filters()) {
+                NavigableSet<Entry> ranking = rankings.get(filter);
+                ranking.remove(previous);
+                if (ranking.isEmpty()) {
+                    rankings.remove(filter);
+                }
+            }
+        }
+        if (likes > 0) {
+            Entry entry = new Entry(filmId, likes);
+            entries.put(filmId, entry);
+            for (Filter filter : filmTraits.filters()) {
+                rankings.computeIfAbsent(filter, key -> new TreeSet<>(ORDER)).add(entry);
+            }
+        }
+    }
+
+    private record Entry(long filmId, long likes) {
+    }
+
+    private record Filter(Integer genreId, Integer year) {
+        static final Filter ANY = new Filter(null, null);
+    }
+
+    /**
+     * Рейтинги, в которые входит фильм: общий, по году, по каждому жанру и по каждому жанру в этом году.
+     */
+    private record Traits(List<Filter> filters) {
+        static final Traits UNKNOWN = new Traits(List.of(Filter.ANY));
+
+        static Traits of(int year, Collection<Integer> genreIds) {
+            List<Filter> filters = new ArrayList<>();
+            filters.add(Filter.ANY);
+            filters.add(new Filter(null, year));
+            if (genreIds != null) {
+                for (Integer genreId : new TreeSet<>(genreIds)) {
+                    filters.add(new Filter(genreId, null));
+                    filters.add(new Filter(genreId, year));
+                }
+            }
+            return new Traits(List.copyOf(filters));
+        }
+    }
+}
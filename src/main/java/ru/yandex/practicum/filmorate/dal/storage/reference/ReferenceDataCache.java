@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.dal.storage.reference;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaRepository;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Справочники рейтингов MPA и жанров в памяти. Загружаются при старте: приложение не меняет таблицы
+ * mpa_rating и genre. Поиск по id — обращение к массиву без запроса в базу. Наружу отдаются копии,
+ * поэтому изменение рейтинга или жанра у одного фильма не попадает в ответы на другие запросы.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReferenceDataCache {
+    final MpaRepository mpaRepository;
+    final GenreRepository genreRepository;
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void refresh() {
+        List<RatingMpa> ratings = List.copyOf(mpaRepository.getAllRatings());
+        List<Genre> genres = List.copyOf(genreRepository.getAllGenres());
+
+        RatingMpa[] ratingsById = new RatingMpa[ratings.stream().mapToInt(RatingMpa::getId).max().orElse(0) + 1];
+        ratings.forEach(rating -> ratingsById[rating.getId()] = rating);
+        Genre[] genresById = new Genre[genres.stream().mapToInt(Genre::getId).max().orElse(0) + 1];
+        genres.forEach(genre -> genresById[genre.getId()] = genre);
+
+        snapshot = new Snapshot(ratings, ratingsById, genres, genresById);
+        log.info("Справочники загружены: рейтингов {}, жанров {}", ratings.size(), genres.size());
+    }
+
+    public Optional<RatingMpa> getRating(int id) {
+        RatingMpa[] ratingsById = snapshot.ratingsById();
+        return record(id >= 0 && id < ratingsById.length ? ratingsById[id] : null).map(ReferenceDataCache::copy);
+    }
+
+    public Optional<Genre> getGenre(int id) {
+        Genre[] genresById = snapshot.genresById();
+        return record(id >= 0 && id < genresById.length ? genresById[id] : null).map(ReferenceDataCache::copy);
+    }
+
+    public List<RatingMpa> getAllRatings() {
+        return snapshot.ratings().stream().map(ReferenceDataCache::copy).toList();
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres().stream().map(ReferenceDataCache::copy).toList();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static RatingMpa copy(RatingMpa rating) {
+        return new RatingMpa(rating.getId(), rating.getName());
+    }
+
+    private static Genre copy(Genre genre) {
+        return new Genre(genre.getId(), genre.getName());
+    }
+
+    private <T> Optional<T> record(T value) {
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return Optional.ofNullable(value);
+    }
+
+    private record Snapshot(List<RatingMpa> ratings, RatingMpa[] ratingsById, List<Genre> genres, Genre[] genresById) {
+    }
+}
@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.dal.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя отсортированный массив id его друзей.
+ * Массивы не изменяются после публикации, поэтому чтение идёт без блокировок, а изменение
+ * заменяет массив одного пользователя целиком. Перестроение собирает новую таблицу и подменяет ссылку,
+ * так что читатель видит либо прежний граф, либо новый, но не пустой. Общие друзья находятся слиянием
+ * двух массивов за O(n + m).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendshipGraph {
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final JdbcTemplate jdbc;
+    private volatile Map<Long, long[]> friends = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        String query = "SELECT user_id, friend_id FROM friendship ORDER BY user_id, friend_id";
+        Map<Long, long[]> loaded = new ConcurrentHashMap<>();
+        Cursor cursor = new Cursor();
+        jdbc.query(query, rs -> {
+            long user = rs.getLong("user_id");
+            if (cursor.size > 0 && user != cursor.userId) {
+                loaded.put(cursor.userId, Arrays.copyOf(cursor.ids, cursor.size));
+                cursor.size = 0;
+            }
+            cursor.userId = user;
+            cursor.add(rs.getLong("friend_id"));
+        });
+        if (cursor.size > 0) {
+            loaded.put(cursor.userId, Arrays.copyOf(cursor.ids, cursor.size));
+        }
+        friends = loaded;
+        log.info("Граф дружбы построен: {} пользователей с друзьями", loaded.size());
+    }
+
+    public void addFriend(long userId, long friendId) {
+        friends.compute(userId, (id, ids) -> {
+            long[] current = ids == null ? NO_FRIENDS : ids;
+            int position = Arrays.binarySearch(current, friendId);
+            if (position >= 0) {
+                return current;
+            }
+            int insertAt = -position - 1;
+            long[] updated = new long[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = friendId;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            return updated;
+        });
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        friends.computeIfPresent(userId, (id, ids) -> without(ids, friendId));
+    }
+
+    /**
+     * Удаляет пользователя вместе со всеми связями, в которых он указан другом. Требует обхода всего графа,
+     * что допустимо для редкой операции удаления. Возвращает пользователей, у которых он был в друзьях.
+     */
+    public List<Long> removeUser(long userId) {
+        Map<Long, long[]> current = friends;
+        current.remove(userId);
+        List<Long> affected = new ArrayList<>();
+        for (Long id : current.keySet()) {
+            current.computeIfPresent(id, (key, ids) -> {
+                long[] updated = without(ids, userId);
+                if (updated != ids) {
+                    affected.add(key);
+                }
+                return updated;
+            });
+        }
+        return affected;
+    }
+
+    public long[] getFriends(long userId) {
+        return friends.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    public long[] getMutualFriends(long userId, long otherId) {
+        long[] first = getFriends(userId);
+        long[] second = getFriends(otherId);
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    /**
+     * Друзья друзей, которых пользователь ещё не добавил, по убыванию числа общих друзей, при равенстве — по id.
+     * Счётчики хранятся в хеш-таблице на примитивах, уже добавленные друзья отсеиваются только среди различных
+     * кандидатов, лучшие отбираются кучей размера limit. Стоимость — O(E + C log limit), где E — сумма числа
+     * друзей у друзей пользователя, C — число различных кандидатов.
+     */
+    public List<Suggestion> suggestFriends(long userId, int limit) {
+        long[] userFriends = getFriends(userId);
+        LongIntCounter counter = new LongIntCounter();
+        for (long friendId : userFriends) {
+            for (long candidate : getFriends(friendId)) {
+                counter.increment(candidate);
+            }
+        }
+        return counter.top(limit,
+                candidate -> candidate == userId || Arrays.binarySearch(userFriends, candidate) >= 0);
+    }
+
+    private static long[] without(long[] ids, long friendId) {
+        int position = Arrays.binarySearch(ids, friendId);
+        if (position < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+        return updated;
+    }
+
+    public record Suggestion(long userId, int mutualFriends) {
+    }
+
+    /**
+     * Хеш-таблица с открытой адресацией: id пользователя -> число общих друзей. Ключ 0 означает пустую ячейку,
+     * id пользователей начинаются с 1.
+     */
+    private static final class LongIntCounter {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] counts = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void increment(long key) {
+            int slot = find(keys, key);
+            if (keys[slot] == 0) {
+                if (++size * 2 > keys.length) {
+                    grow();
+                    slot = find(keys, key);
+                }
+                keys[slot] = key;
+            }
+            counts[slot]++;
+        }
+
+        private static int find(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        /**
+         * Куча-минимум из limit лучших кандидатов: в корне худший из отобранных, его и вытесняет новый кандидат.
+         */
+        List<Suggestion> top(int limit, LongPredicate excluded) {
+            long[] heapKeys = new long[limit];
+            int[] heapCounts = new int[limit];
+            int size = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] == 0 || excluded.test(keys[slot])) {
+                    continue;
+                }
+                if (size < limit) {
+                    heapKeys[size] = keys[slot];
+                    heapCounts[size] = counts[slot];
+                    siftUp(heapKeys, heapCounts, size++);
+                } else if (isBetter(keys[slot], counts[slot], heapKeys[0], heapCounts[0])) {
+                    heapKeys[0] = keys[slot];
+                    heapCounts[0] = counts[slot];
+                    siftDown(heapKeys, heapCounts, size);
+                }
+            }
+            List<Suggestion> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new Suggestion(heapKeys[i], heapCounts[i]));
+            }
+            result.sort(Comparator.comparingInt(Suggestion::mutualFriends).reversed()
+                    .thenComparingLong(Suggestion::userId));
+            return result;
+        }
+
+        private static boolean isBetter(long key, int count, long otherKey, int otherCount) {
+            return count > otherCount || count == otherCount && key < otherKey;
+        }
+
+        private static void siftUp(long[] heapKeys, int[] heapCounts, int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!isBetter(heapKeys[parent], heapCounts[parent], heapKeys[index], heapCounts[index])) {
+                    return;
+                }
+                swap(heapKeys, heapCounts, parent, index);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(long[] heapKeys, int[] heapCounts, int size) {
+            int index = 0;
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (isBetter(heapKeys[worst], heapCounts[worst], heapKeys[child], heapCounts[child])) {
+                        worst = child;
+                    }
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(heapKeys, heapCounts, index, worst);
+                index = worst;
+            }
+        }
+
+        private static void swap(long[] heapKeys, int[] heapCounts, int i, int j) {
+            long key = heapKeys[i];
+            heapKeys[i] = heapKeys[j];
+            heapKeys[j] = key;
+            int count = heapCounts[i];
+            heapCounts[i] = heapCounts[j];
+            heapCounts[j] = count;
+        }
+    }
+
+    private static final class Cursor {
+        long userId;
+        long[] ids = new long[16];
+        int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
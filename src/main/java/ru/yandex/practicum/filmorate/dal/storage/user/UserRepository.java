@@ -6,11 +6,15 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.FriendIdRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.dal.storage.BaseRepository;
+import ru.yandex.practicum.filmorate.dal.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.dal.storage.QueryMetrics;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.Date;
@@ -22,15 +26,20 @@ import java.util.stream.Collectors;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class UserRepository extends BaseRepository<User> implements UserStorage {
     RowMapper<User> mapper = new UserRowMapper();
-
-    public UserRepository(JdbcTemplate jdbc) {
-        super(jdbc);
+    FriendshipGraph friendshipGraph;
+    EntityVersions versions;
+
+    public UserRepository(JdbcTemplate jdbc, QueryMetrics queries, FriendshipGraph friendshipGraph,
+                          EntityVersions versions) {
+        super(jdbc, queries);
+        this.friendshipGraph = friendshipGraph;
+        this.versions = versions;
     }
 
     @Override
     public User create(User user) {
         String query = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
-        long id = super.create(query,
+        long id = super.create("user.create", query,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
@@ -44,7 +53,7 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
     @Override
     public User getById(Long id) {
         String query = "SELECT * FROM users WHERE id = ?";
-        User user = findOne(query, mapper, id)
+        User user = findOne("user.getById", query, mapper, id)
                 .orElseThrow(() -> new NotFoundException(String.format("Пользователь с id %d не найден.", id)));
         Set<Long> friends = getFriendIds(id);
         user.setFriends(friends);
@@ -60,76 +69,158 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
     @Override
     public List<User> getAllValues() {
         String query = "SELECT * FROM users";
-        List<User> users = findMany(query, mapper);
+        List<User> users = findMany("user.getAllValues", query, mapper);
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : users) {
+            user.setFriends(new HashSet<>());
+            usersById.put(user.getId(), user);
+        }
+        // Пользователь, добавленный между запросами вместе с дружбой, в список не попал — его дружбы пропускаются
+        forEachRow("user.getAllValues.friends", "SELECT user_id, friend_id FROM friendship", rs -> {
+            User user = usersById.get(rs.getLong("user_id"));
+            if (user != null) {
+                user.getFriends().add(rs.getLong("friend_id"));
+            }
+        });
+        return users;
+    }
+
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        String query = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        List<User> users = findMany("user.getUsersPage", query, mapper, afterId, limit);
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> usersById = new HashMap<>();
         for (User user : users) {
-            user.setFriends(getFriendIds(user.getId()));
+            user.setFriends(new HashSet<>());
+            usersById.put(user.getId(), user);
         }
+        String friendsQuery = "SELECT user_id, friend_id FROM friendship WHERE user_id = ANY(?)";
+        forEachRow("user.getUsersPage.friends", friendsQuery, rs -> {
+            usersById.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+        }, (Object) usersById.keySet().toArray(new Long[0]));
         return users;
     }
 
     @Override
     public User update(User user) {
         String query = "UPDATE users SET email = ?, login = ?, name = ?,  birthday = ?  WHERE id = ?";
-        super.update(query,
+        super.update("user.update", query,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 Date.valueOf(user.getBirthday()),
                 user.getId()
         );
+        versions.userChanged(user.getId());
         return user;
     }
 
     @Override
+    @Transactional
     public void deleteById(Long id) {
         String query = "DELETE FROM users WHERE id = ?";
-        boolean isDeleted = super.delete(query, id);
+        boolean isDeleted = super.delete("user.delete", query, id);
 
         if (!isDeleted) {
             throw new InternalServerException(String.format("Не удалось удалить пользователя с id: %d.", id));
         }
+        afterCommit(() -> {
+            versions.userChanged(id);
+            friendshipGraph.removeUser(id).forEach(versions::userChanged);
+        });
     }
 
     @Override
+    @Transactional
     public void addFriend(Long userId, Long friendId) {
-        getById(userId);
-        getById(friendId);
+        checkUsersExist(userId, friendId);
         String query = "INSERT INTO friendship (user_id, friend_id, is_confirmed) VALUES (?, ?, ?)";
-        super.update(query, userId, friendId, false);
+        super.update("user.addFriend", query, userId, friendId, false);
+        afterCommit(() -> {
+            friendshipGraph.addFriend(userId, friendId);
+            versions.userChanged(userId);
+        });
     }
 
     @Override
+    @Transactional
     public void removeFriend(Long userId, Long friendId) {
-        getById(userId);
-        getById(friendId);
+        checkUsersExist(userId, friendId);
         String query = "DELETE FROM friendship where user_id = ? and friend_id = ?";
-        super.delete(query, userId, friendId);
+        super.delete("user.removeFriend", query, userId, friendId);
+        afterCommit(() -> {
+            friendshipGraph.removeFriend(userId, friendId);
+            versions.userChanged(userId);
+        });
     }
 
 
     public Set<Long> getFriendIds(long id) {
         String query = "SELECT friend_id FROM friendship WHERE user_id = ?";
-        return new HashSet<>(jdbc.query(query, new FriendIdRowMapper(), id));
+        return new HashSet<>(findMany("user.friendIds", query, new FriendIdRowMapper(), id));
     }
 
     @Override
     public List<User> getMutualFriends(Long userId1, Long userId2) {
-        getById(userId1);
-        getById(userId2);
-        String query = "SELECT u.* " +
-                "FROM users u " +
-                "INNER JOIN friendship f1 ON u.id = f1.friend_id " +
-                "INNER JOIN friendship f2 ON u.id = f2.friend_id " +
-                "WHERE f1.user_id = ? " +
-                "    AND f2.user_id = ?;";
-        return findMany(query, mapper, userId1, userId2);
+        checkUsersExist(userId1, userId2);
+        long[] mutualIds = friendshipGraph.getMutualFriends(userId1, userId2);
+        if (mutualIds.length == 0) {
+            return new ArrayList<>();
+        }
+        String query = "SELECT * FROM users WHERE id = ANY(?) ORDER BY id";
+        return findMany("user.getMutualFriends", query, mapper,
+                (Object) Arrays.stream(mutualIds).boxed().toArray(Long[]::new));
     }
 
     @Override
     public List<User> getAllFriends(Long userId) {
-        getById(userId);
+        checkUsersExist(userId);
         String query = "SELECT * FROM users u WHERE u.id IN " +
-                "(SELECT f.friend_id FROM friendship f WHERE f.user_id = ?)";
-        return findMany(query, mapper, userId);
+                "(SELECT f.friend_id FROM friendship f WHERE f.user_id = ?) ORDER BY u.id";
+        return findMany("user.getAllFriends", query, mapper, userId);
+    }
+
+    @Override
+    public String getVersionTag(Long id) {
+        return versions.userTag(id);
+    }
+
+    @Override
+    public String getFriendsVersionTag(Long userId) {
+        return versions.friendsTag(userId, friendshipGraph.getFriends(userId));
+    }
+
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int count) {
+        checkUsersExist(userId);
+        List<FriendshipGraph.Suggestion> suggestions = friendshipGraph.suggestFriends(userId, count);
+        if (suggestions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String query = "SELECT * FROM users WHERE id = ANY(?)";
+        Long[] ids = suggestions.stream().map(FriendshipGraph.Suggestion::userId).toArray(Long[]::new);
+        Map<Long, User> usersById = findMany("user.getFriendSuggestions", query, mapper, (Object) ids).stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
+        List<FriendSuggestion> result = new ArrayList<>(suggestions.size());
+        for (FriendshipGraph.Suggestion suggestion : suggestions) {
+            User user = usersById.get(suggestion.userId());
+            if (user != null) {
+                result.add(new FriendSuggestion(user, suggestion.mutualFriends()));
+            }
+        }
+        return result;
+    }
+
+    private void checkUsersExist(Long... ids) {
+        String query = "SELECT id FROM users WHERE id = ANY(?)";
+        Set<Long> existing = new HashSet<>(findMany("user.checkExist", query, Long.class, (Object) ids));
+        for (Long id : ids) {
+            if (!existing.contains(id)) {
+                throw new NotFoundException(String.format("Пользователь с id %d не найден.", id));
+            }
+        }
     }
 }
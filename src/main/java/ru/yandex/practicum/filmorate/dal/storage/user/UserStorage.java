@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.dal.storage.user;
 
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
@@ -10,6 +11,8 @@ public interface UserStorage {
 
     List<User> getAllValues();
 
+    List<User> getUsersPage(long afterId, int limit);
+
     User update(User user);
 
     User getById(Long id);
@@ -25,4 +28,10 @@ public interface UserStorage {
     List<User> getMutualFriends(Long userId1, Long userId2);
 
     List<User> getAllFriends(Long userId);
+
+    List<FriendSuggestion> getFriendSuggestions(Long userId, int count);
+
+    String getVersionTag(Long id);
+
+    String getFriendsVersionTag(Long userId);
 }
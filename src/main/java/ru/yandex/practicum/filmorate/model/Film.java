@@ -6,9 +6,7 @@ import lombok.experimental.SuperBuilder;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 @Data
 @EqualsAndHashCode(of = {"id"})
@@ -32,8 +30,10 @@ public class Film extends BaseEntity {
     @Min(1)
     private int duration;
 
+    private long likeCount;
+
     @Builder.Default
-    private Set<Long> likes = new HashSet<>();
+    private LikeSet likes = LikeSet.empty();
 
     @NotNull(message = "У фильма должен быть рейтинг MPA")
     RatingMpa mpa;
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FilmLikeResult {
+    Long filmId;
+    Long userId;
+    Status status;
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        FILM_NOT_FOUND,
+        USER_NOT_FOUND
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемое множество id пользователей, поставивших лайк. Хранится отсортированным массивом long:
+ * 8 байт на лайк против примерно 64 байт у HashSet<Long>. Поиск — двоичный, O(log n).
+ * В JSON записывается массивом чисел.
+ */
+public final class LikeSet extends AbstractSet<Long> {
+    private static final LikeSet EMPTY = new LikeSet(new long[0]);
+
+    private final long[] ids;
+
+    private LikeSet(long[] ids) {
+        this.ids = ids;
+    }
+
+    public static LikeSet empty() {
+        return EMPTY;
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static LikeSet of(long... ids) {
+        return builder(ids.length).addAll(ids).build();
+    }
+
+    public static Builder builder() {
+        return builder(16);
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && contains(id.longValue());
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Копия id в порядке возрастания.
+     */
+    @JsonValue
+    public long[] toLongArray() {
+        return ids.clone();
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.length;
+            }
+
+            @Override
+            public Long next() {
+                if (next >= ids.length) {
+                    throw new NoSuchElementException();
+                }
+                return ids[next++];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof LikeSet other) {
+            return Arrays.equals(ids, other.ids);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (long id : ids) {
+            hash += Long.hashCode(id);
+        }
+        return hash;
+    }
+
+    /**
+     * Накопитель id без упаковки в Long. Порядок и повторы не важны: при сборке массив сортируется
+     * и очищается от дублей.
+     */
+    public static final class Builder {
+        private long[] ids;
+        private int size;
+
+        private Builder(int expectedSize) {
+            ids = new long[Math.max(expectedSize, 1)];
+        }
+
+        public Builder add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return this;
+        }
+
+        public Builder addAll(long... values) {
+            for (long value : values) {
+                add(value);
+            }
+            return this;
+        }
+
+        public LikeSet build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            int unique = 1;
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i] != sorted[unique - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return new LikeSet(unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique));
+        }
+    }
+}
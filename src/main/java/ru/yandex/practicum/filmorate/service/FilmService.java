@@ -1,17 +1,28 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import ru.yandex.practicum.filmorate.dal.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmLikeResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -22,6 +33,9 @@ public class FilmService {
     private static final LocalDate RELEASE_DATE_CHECK = LocalDate.of(1895, 12, 28);
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    @Value("${filmorate.export.fetch-size:500}")
+    private final int exportFetchSize;
 
 
     public void addLike(@Positive Long filmId, @Positive Long userId) {
@@ -29,6 +43,19 @@ public class FilmService {
         log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
     }
 
+    public List<FilmLikeResult> addLikes(List<FilmLike> likes) {
+        List<FilmLikeResult> results = filmStorage.addLikes(likes);
+        long created = results.stream()
+                .filter(result -> result.getStatus() == FilmLikeResult.Status.CREATED)
+                .count();
+        log.info("Пакетная загрузка лайков: получено {}, добавлено {}", likes.size(), created);
+        return results;
+    }
+
+    public List<Film> getRecommendations(@Positive Long userId, @Positive int count) {
+        return filmStorage.getRecommendations(userId, count);
+    }
+
     public void removeLike(@Positive Long filmId, @Positive Long userId) {
         filmStorage.removeLike(filmId, userId);
         log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
@@ -39,6 +66,13 @@ public class FilmService {
         return filmStorage.create(film);
     }
 
+    public List<Film> createAll(List<Film> films) {
+        films.forEach(this::validateReleaseDate);
+        List<Film> created = filmStorage.createAll(films);
+        log.info("Пакетный импорт фильмов: добавлено {}", created.size());
+        return created;
+    }
+
     public Film update(Film film) {
         if (film.getId() == 0) {
             log.error("Ошибка при обновлении: Id не может быть равен 0.");
@@ -56,16 +90,49 @@ public class FilmService {
         return filmStorage.getById(id);
     }
 
+    public String getVersionTag(Long id) {
+        return filmStorage.getVersionTag(id);
+    }
+
     public Collection<Film> getFilms() {
         return filmStorage.getFilms();
     }
 
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return filmStorage.getFilmsPage(afterId, limit);
+    }
+
+    public void exportFilms(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Film.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            filmStorage.forEachFilm(exportFetchSize, film -> {
+                try {
+                    writer.writeValue(generator, film);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        log.info("Выгрузка каталога фильмов завершена");
+    }
+
     public void delete(Long id) {
         filmStorage.delete(id);
     }
 
-    public Collection<Film> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count);
+    public Collection<Film> getPopularFilms(int count, Integer genreId, Integer year) {
+        return filmStorage.getPopularFilms(count, genreId, year);
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        return filmStorage.searchFilms(query, limit);
+    }
+
+    public List<Film> autocomplete(String prefix, int limit) {
+        return filmStorage.autocomplete(prefix, limit);
     }
 
     private void validateReleaseDate(Film film) {
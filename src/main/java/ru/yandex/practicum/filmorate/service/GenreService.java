@@ -4,7 +4,7 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dal.storage.genre.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.storage.reference.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
@@ -14,14 +14,14 @@ import java.util.Collection;
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class GenreService {
-    GenreRepository genreRepository;
+    ReferenceDataCache referenceData;
 
     public Collection<Genre> getAllGenres() {
-        return genreRepository.getAllGenres();
+        return referenceData.getAllGenres();
     }
 
     public Genre getGenreById(int id) {
-        return genreRepository.getGenreById(id)
+        return referenceData.getGenre(id)
                 .orElseThrow(() -> new NotFoundException("Жанр с id " + id + " не найден."));
     }
 }
@@ -5,7 +5,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
-import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaRepository;
+import ru.yandex.practicum.filmorate.dal.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.RatingMpa;
 
 import java.util.Collection;
@@ -14,13 +15,14 @@ import java.util.Collection;
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class RatingService {
-    MpaRepository mpaRepository;
+    ReferenceDataCache referenceData;
 
     public Collection<RatingMpa> getAllRatings() {
-        return mpaRepository.getAllRatings();
+        return referenceData.getAllRatings();
     }
 
     public RatingMpa getRatingById(@PathVariable("id") int id) {
-        return mpaRepository.getRatingById(id);
+        return referenceData.getRating(id)
+                .orElseThrow(() -> new NotFoundException("Рейтинг с таким id не найден:" + id));
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
@@ -28,10 +29,22 @@ public class UserService {
         return userStorage.getAllValues();
     }
 
+    public List<User> getUsersPage(long afterId, int limit) {
+        return userStorage.getUsersPage(afterId, limit);
+    }
+
     public User getById(Long id) {
         return userStorage.getById(id);
     }
 
+    public String getVersionTag(Long id) {
+        return userStorage.getVersionTag(id);
+    }
+
+    public String getFriendsVersionTag(Long userId) {
+        return userStorage.getFriendsVersionTag(userId);
+    }
+
     public User create(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
@@ -68,4 +81,8 @@ public class UserService {
     public List<User> getMutualFriends(@Positive Long userId, @Positive Long friendId) {
         return userStorage.getMutualFriends(userId, friendId);
     }
+
+    public List<FriendSuggestion> getFriendSuggestions(@Positive Long userId, @Positive int count) {
+        return userStorage.getFriendSuggestions(userId, count);
+    }
 }
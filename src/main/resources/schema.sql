@@ -21,6 +21,7 @@ CREATE TABLE IF NOT EXISTS film (
     release_date TIMESTAMP NOT NULL,
     duration_in_minutes INT NOT NULL,
     rating_id BIGINT NOT NULL,
+    like_count BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (rating_id) REFERENCES mpa_rating(id)
 );
 
@@ -48,6 +49,15 @@ CREATE TABLE IF NOT EXISTS film_like (
     FOREIGN KEY (film_id) REFERENCES film(id)
 );
 
+-- Счётчик лайков для баз, созданных до его появления: столбец добавляется со значением -1
+-- и сразу заполняется из film_like; в остальных базах таких строк нет и обновление ничего не меняет
+ALTER TABLE film ADD COLUMN IF NOT EXISTS like_count BIGINT NOT NULL DEFAULT -1;
+UPDATE film f SET like_count = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.id) WHERE like_count < 0;
+ALTER TABLE film ALTER COLUMN like_count SET DEFAULT 0;
+
+-- Топ по лайкам: индекс отдаёт строки уже в порядке like_count DESC, id
+CREATE INDEX IF NOT EXISTS film_like_count_id_idx ON film (like_count DESC, id);
+
 -- Создание таблицы дружбы (с двумя пользователями)
 CREATE TABLE IF NOT EXISTS friendship (
     user_id BIGINT,
@@ -1,7 +1,12 @@
 package ru.yandex.practicum.filmorate;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.yandex.practicum.filmorate.dal.StatementCounter;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 class FilmorateApplicationTests {
@@ -10,4 +15,10 @@ class FilmorateApplicationTests {
     void contextLoads() {
     }
 
+    @Test
+    void statementCounterIsOffByDefault(@Autowired ApplicationContext context) {
+        assertTrue(context.getBeansOfType(StatementCounter.class).isEmpty(),
+                "Соединения не должны оборачиваться без filmorate.sql.query-count-header");
+    }
+
 }
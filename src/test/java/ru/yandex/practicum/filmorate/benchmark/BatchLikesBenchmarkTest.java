@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:batch-likes-benchmark")
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class BatchLikesBenchmarkTest {
+    static final int USERS = 1_000;
+    static final int FILMS = 200;
+    static final int SINGLE_LIKES = 2_000;
+    static final int BATCH_SIZE = 5_000;
+    static final int BATCHES = 20;
+    static final double MIN_SPEEDUP = 50;
+
+    MockMvc mockMvc;
+    ObjectMapper objectMapper;
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchAgainstSingleRequests() throws Exception {
+        BenchmarkData.seedUsers(jdbcTemplate, USERS);
+        BenchmarkData.seedFilms(jdbcTemplate, FILMS);
+        List<FilmLike> likes = new ArrayList<>(USERS * FILMS);
+        for (long user = 1; user <= USERS; user++) {
+            for (long film = 1; film <= FILMS; film++) {
+                likes.add(new FilmLike(film, user));
+            }
+        }
+
+        long start = System.nanoTime();
+        for (FilmLike like : likes.subList(0, SINGLE_LIKES)) {
+            mockMvc.perform(put("/films/{id}/like/{userId}", like.getFilmId(), like.getUserId()))
+                    .andExpect(status().isOk());
+        }
+        double singlePerSecond = SINGLE_LIKES * 1e9 / (System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < BATCHES; i++) {
+            int from = SINGLE_LIKES + i * BATCH_SIZE;
+            byte[] body = objectMapper.writeValueAsBytes(likes.subList(from, from + BATCH_SIZE));
+            mockMvc.perform(post("/films/likes:batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isOk());
+        }
+        double batchPerSecond = (long) BATCHES * BATCH_SIZE * 1e9 / (System.nanoTime() - start);
+
+        log.info("Лайки по одному: {} в секунду", String.format("%.0f", singlePerSecond));
+        log.info("Лайки пакетами по {}: {} в секунду, ускорение {}", BATCH_SIZE,
+                String.format("%.0f", batchPerSecond), String.format("%.1f", batchPerSecond / singlePerSecond));
+        assertEquals(SINGLE_LIKES + (long) BATCHES * BATCH_SIZE,
+                jdbcTemplate.queryForObject("SELECT SUM(like_count) FROM film", Long.class));
+        assertTrue(batchPerSecond >= singlePerSecond * MIN_SPEEDUP, "Пакетная загрузка быстрее менее чем в 50 раз");
+    }
+}
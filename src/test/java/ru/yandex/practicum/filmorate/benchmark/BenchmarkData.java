@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Наполнение базы для замеров. Идентификаторы пользователей и фильмов идут подряд с единицы.
+ */
+public final class BenchmarkData {
+    private static final int BATCH_SIZE = 10_000;
+    private static final String[] SYLLABLES = {"ма", "три", "ца", "ёл", "ки", "но", "вый", "до", "ро", "га", "лю",
+            "бовь", "вой", "на", "мир", "брат", "сол", "дат", "зим", "ний", "го", "род", "ноч", "ной", "дозор"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Отдельная база H2 в памяти со схемой и справочниками приложения — для замеров JMH, где нет контекста Spring.
+     */
+    public static JdbcTemplate createDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        return new JdbcTemplate(dataSource);
+    }
+
+    public static void seedUsers(JdbcTemplate jdbc, int count) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[]{"user" + i + "@mail.ru", "user" + i, "Пользователь " + i,
+                    Date.valueOf(LocalDate.of(1990, 1, 1).plusDays(i % 5000))});
+            if (batch.size() == BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    public static void seedFilms(JdbcTemplate jdbc, int count) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[]{"Фильм " + i, "Описание фильма " + i,
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(i % 25000)), 90 + i % 60, 1 + i % 5});
+            if (batch.size() == BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO film (name, description, release_date, duration_in_minutes, " +
+                        "rating_id) VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Каждому фильму один или два жанра из шести справочных.
+     */
+    public static void seedFilmGenres(JdbcTemplate jdbc, int films) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= films; i++) {
+            batch.add(new Object[]{i, 1 + i % 6});
+            if (i % 3 == 0) {
+                batch.add(new Object[]{i, 1 + (i + 3) % 6});
+            }
+            if (batch.size() >= BATCH_SIZE || i == films) {
+                jdbc.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Каждый пользователь ставит одинаковое число лайков случайным фильмам без повторов. film.like_count
+     * пересчитывается по вставленным лайкам.
+     */
+    public static void seedLikes(JdbcTemplate jdbc, int users, int films, int likes, long seed) {
+        Random random = new Random(seed);
+        int likesPerUser = Math.min(films, Math.max(1, likes / users));
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        Set<Integer> userFilms = new HashSet<>();
+        for (int user = 1; user <= users; user++) {
+            userFilms.clear();
+            while (userFilms.size() < likesPerUser) {
+                userFilms.add(1 + random.nextInt(films));
+            }
+            for (int film : userFilms) {
+                batch.add(new Object[]{user, film});
+                if (batch.size() == BATCH_SIZE) {
+                    jdbc.batchUpdate("INSERT INTO film_like (user_id, film_id) VALUES (?, ?)", batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO film_like (user_id, film_id) VALUES (?, ?)", batch);
+        }
+        jdbc.update("UPDATE film f SET like_count = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.id)");
+    }
+
+    /**
+     * Каждый пользователь добавляет в друзья одинаковое число случайных пользователей, не считая себя.
+     */
+    public static void seedFriendships(JdbcTemplate jdbc, int users, int friendsPerUser, long seed) {
+        Random random = new Random(seed);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        Set<Integer> userFriends = new HashSet<>();
+        for (int user = 1; user <= users; user++) {
+            userFriends.clear();
+            while (userFriends.size() < Math.min(friendsPerUser, users - 1)) {
+                int friend = 1 + random.nextInt(users);
+                if (friend != user) {
+                    userFriends.add(friend);
+                }
+            }
+            for (int friend : userFriends) {
+                batch.add(new Object[]{user, friend});
+                if (batch.size() == BATCH_SIZE) {
+                    jdbc.batchUpdate("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", batch);
+        }
+    }
+
+    /**
+     * Русское псевдослово из слогов, своё для каждого номера.
+     */
+    public static String russianWord(int index) {
+        StringBuilder word = new StringBuilder();
+        int rest = index;
+        do {
+            word.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0);
+        return word.toString();
+    }
+
+    /**
+     * Накопленные вероятности закона Ципфа: слово с номером i встречается пропорционально 1 / (i + 1).
+     */
+    public static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    public static String randomText(Random random, String[] words, double[] cumulative, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int found = Arrays.binarySearch(cumulative, random.nextDouble());
+            text.append(i == 0 ? "" : " ").append(words[Math.min(words.length - 1, found < 0 ? -found - 1 : found)]);
+        }
+        return text.toString();
+    }
+
+    public static long[] sortedNanos(int iterations, Runnable action) {
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            action.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    public static String describe(long[] sortedNanos) {
+        double average = Arrays.stream(sortedNanos).average().orElse(0) / 1_000;
+        double p50 = percentile(sortedNanos, 0.5) / 1_000.0;
+        double p99 = percentile(sortedNanos, 0.99) / 1_000.0;
+        return String.format("среднее %.2f мкс, p50 %.2f мкс, p99 %.2f мкс", average, p50, p99);
+    }
+
+    public static long percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(sortedNanos.length * percentile) - 1;
+        return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, index))];
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmTitleTrie;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Подсказки по 1 млн названий из одного-четырёх псевдослов. Лайки распределены по закону Ципфа,
+ * префиксы длиной от одного до шести символов берутся из существующих названий.
+ */
+@Slf4j
+@Tag("benchmark")
+public class FilmAutocompleteBenchmarkTest {
+    static final int FILMS = 1_000_000;
+    static final int VOCABULARY = 20_000;
+    static final int LIMIT = 10;
+    static final int ITERATIONS = 10_000;
+
+    @Test
+    void completeMillionTitles() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = BenchmarkData.russianWord(i);
+        }
+        double[] cumulative = BenchmarkData.zipf(VOCABULARY);
+
+        FilmTitleTrie trie = new FilmTitleTrie(null);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        for (int film = 1; film <= FILMS; film++) {
+            Random filmRandom = new Random(film);
+            trie.put(film, BenchmarkData.randomText(filmRandom, words, cumulative, 1 + filmRandom.nextInt(4)),
+                    (long) (1_000 / (1 + 1_000 * filmRandom.nextDouble())));
+        }
+        log.info("Добавление {} названий по одному: {} мс", FILMS, (System.nanoTime() - start) / 1_000_000);
+        System.gc();
+        long heap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+        log.info("Дерево занимает около {} МБ на миллион названий", (heap >> 20) * 1_000_000 / FILMS);
+
+        assertEquals(LIMIT, trie.complete(words[0].substring(0, 1), LIMIT).size());
+        String[] prefixes = new String[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            Random filmRandom = new Random(1 + random.nextInt(FILMS));
+            String title = BenchmarkData.randomText(filmRandom, words, cumulative, 1 + filmRandom.nextInt(4));
+            prefixes[i] = title.substring(0, Math.min(title.length(), 1 + random.nextInt(6)));
+        }
+        int[] next = {0};
+        BenchmarkData.sortedNanos(ITERATIONS, () -> trie.complete(prefixes[next[0]++ % ITERATIONS], LIMIT));
+        long[] complete = BenchmarkData.sortedNanos(ITERATIONS,
+                () -> trie.complete(prefixes[next[0]++ % ITERATIONS], LIMIT));
+        log.info("Подсказка по префиксу из 1-6 символов: {}", BenchmarkData.describe(complete));
+
+        long[] likes = BenchmarkData.sortedNanos(ITERATIONS,
+                () -> trie.setLikes(1 + random.nextInt(FILMS), random.nextInt(1_000)));
+        log.info("Изменение лайков фильма: {}", BenchmarkData.describe(likes));
+        assertTrue(BenchmarkData.percentile(complete, 0.99) < 1_000_000, "Подсказка дольше 1 мс");
+    }
+}
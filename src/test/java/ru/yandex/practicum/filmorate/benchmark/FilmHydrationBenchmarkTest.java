@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Загрузка одного фильма по id последовательными запросами и с параллельной дозагрузкой лайков и жанров.
+ * Сначала кэш фильмов отключён, чтобы каждый вызов шёл в базу, затем включён и вмещает четверть фильмов:
+ * параллельная загрузка ускоряет только промахи. H2 в памяти отвечает за микросекунды, поэтому
+ * замер повторяется с искусственной задержкой на каждый запрос — как у базы на соседней машине.
+ */
+@Slf4j
+@Tag("benchmark")
+public class FilmHydrationBenchmarkTest {
+    static final String DATABASE = "film-hydration-benchmark";
+    static final int USERS = 1_000;
+    static final int FILMS = 1_000;
+    static final int LIKES = 50_000;
+    static final long[] ROUND_TRIP_NANOS = {0, 1_000_000};
+    static final int[] CACHE_SIZES = {0, FILMS / 4};
+    static final int ITERATIONS = 2_000;
+
+    @Test
+    void concurrentAgainstSequentialHydration() {
+        JdbcTemplate jdbc = BenchmarkData.createDatabase(DATABASE);
+        BenchmarkData.seedUsers(jdbc, USERS);
+        BenchmarkData.seedFilms(jdbc, FILMS);
+        BenchmarkData.seedFilmGenres(jdbc, FILMS);
+        BenchmarkData.seedLikes(jdbc, USERS, FILMS, LIKES, 42);
+
+        Map<String, long[]> results = new HashMap<>();
+        Map<Boolean, Film> samples = new HashMap<>();
+        for (int cacheSize : CACHE_SIZES) {
+            for (boolean async : new boolean[]{false, true}) {
+                RoundTripDelay delay = new RoundTripDelay();
+                try (ConfigurableApplicationContext app = new SpringApplicationBuilder(FilmorateApplication.class)
+                        .web(WebApplicationType.NONE)
+                        .initializers(context -> context.getBeanFactory().addBeanPostProcessor(delay))
+                        .run("--spring.datasource.url=jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1",
+                                "--filmorate.films.async-hydration.enabled=" + async,
+                                "--filmorate.film-cache.maximum-size=" + cacheSize,
+                                "--filmorate.likes.repair-on-startup=true")) {
+                    FilmRepository repository = app.getBean(FilmRepository.class);
+                    samples.putIfAbsent(async, repository.getById(1L));
+                    for (long roundTrip : ROUND_TRIP_NANOS) {
+                        delay.nanos = roundTrip;
+                        Random random = new Random(42);
+                        BenchmarkData.sortedNanos(ITERATIONS / 10,
+                                () -> repository.getById(1L + random.nextInt(FILMS)));
+                        long[] nanos = BenchmarkData.sortedNanos(ITERATIONS,
+                                () -> repository.getById(1L + random.nextInt(FILMS)));
+                        results.put(async + "/" + cacheSize + "/" + roundTrip, nanos);
+                        log.info("{} загрузка, кэш на {} фильмов, задержка запроса {} мкс: {}",
+                                async ? "Параллельная" : "Последовательная", cacheSize, roundTrip / 1_000,
+                                BenchmarkData.describe(nanos));
+                    }
+                    if (async) {
+                        assertNotNull(app.getBean(MeterRegistry.class).find("executor.completed")
+                                .tag("name", "film.hydration").functionCounter(), "Нет метрик пула film-hydration");
+                    }
+                }
+            }
+        }
+
+        Film sequential = samples.get(false);
+        Film concurrent = samples.get(true);
+        assertEquals(sequential.getLikes(), concurrent.getLikes());
+        assertEquals(sequential.getGenres(), concurrent.getGenres());
+        assertEquals(sequential.getMpa(), concurrent.getMpa());
+        long slow = ROUND_TRIP_NANOS[ROUND_TRIP_NANOS.length - 1];
+        for (int cacheSize : CACHE_SIZES) {
+            assertTrue(BenchmarkData.percentile(results.get("true/" + cacheSize + "/" + slow), 0.5)
+                            < BenchmarkData.percentile(results.get("false/" + cacheSize + "/" + slow), 0.5),
+                    "Параллельная загрузка не быстрее последовательной при задержке запросов, кэш " + cacheSize);
+        }
+    }
+
+    /**
+     * Добавляет задержку nanos к подготовке каждого запроса.
+     */
+    static class RoundTripDelay implements BeanPostProcessor {
+        volatile long nanos;
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return delayed(super.getConnection());
+                    }
+                };
+            }
+            return bean;
+        }
+
+        private Connection delayed(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("prepare") && nanos > 0) {
+                            LockSupport.parkNanos(nanos);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dal.storage.film.LikeMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Индекс похожих фильмов на 10 млн лайков. Лайки генерируются сразу в памяти: загрузка такого объёма в H2
+ * заняла бы больше времени, чем сам замер, а перестройка индекса от источника данных не зависит.
+ */
+@Slf4j
+@Tag("benchmark")
+public class FilmRecommendationsBenchmarkTest {
+    static final int USERS = 200_000;
+    static final int FILMS = 20_000;
+    static final int LIKES_PER_USER = 50;
+    static final int NEIGHBORS = 50;
+    static final int LIMIT = 10;
+    static final int ITERATIONS = 10_000;
+
+    @Test
+    void buildAndRecommend() {
+        Random random = new Random(42);
+        LikeMatrix.Builder builder = LikeMatrix.builder();
+        for (int user = 0; user < USERS; user++) {
+            for (long film : randomFilms(random)) {
+                builder.add(user + 1, film);
+            }
+        }
+        LikeMatrix likes = builder.build();
+
+        FilmSimilarityIndex index = new FilmSimilarityIndex(null, NEIGHBORS);
+        long start = System.nanoTime();
+        index.rebuild(likes);
+        log.info("Построение индекса по {} лайкам, {} потоков: {} мс", likes.likeCount(),
+                ForkJoinPool.commonPool().getParallelism(), (System.nanoTime() - start) / 1_000_000);
+
+        assertFalse(index.recommend(1, LIMIT).isEmpty(), "Нет рекомендаций для активного пользователя");
+        BenchmarkData.sortedNanos(ITERATIONS, () -> index.recommend(1 + random.nextInt(USERS), LIMIT));
+        long[] recommend = BenchmarkData.sortedNanos(ITERATIONS,
+                () -> index.recommend(1 + random.nextInt(USERS), LIMIT));
+        log.info("Рекомендации при {} лайках пользователя: {}", LIKES_PER_USER, BenchmarkData.describe(recommend));
+
+        long[] update = BenchmarkData.sortedNanos(ITERATIONS,
+                () -> index.onLikeAdded(1 + random.nextInt(USERS), 1 + random.nextInt(FILMS)));
+        log.info("Учёт нового лайка: {}", BenchmarkData.describe(update));
+        assertTrue(BenchmarkData.percentile(recommend, 0.99) < 10_000_000, "Рекомендации дольше 10 мс");
+
+        // Лайки нового фильма, которого нет в данных перестройки, приходят всё время, пока она идёт
+        long newFilm = FILMS + 1;
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(() -> index.rebuild(likes));
+        int added = 0;
+        while (!rebuild.isDone()) {
+            index.onLikeAdded(1 + random.nextInt(USERS), newFilm);
+            added++;
+        }
+        rebuild.join();
+        log.info("Во время перестройки учтено {} лайков нового фильма", added);
+        long newUser = USERS + 1;
+        index.onLikeAdded(newUser, newFilm);
+        assertFalse(index.recommend(newUser, LIMIT).isEmpty(), "Лайки, пришедшие во время перестройки, потеряны");
+    }
+
+    /**
+     * Фильмы пользователя без повторов; популярность убывает к концу каталога, как у реальных лайков.
+     */
+    private static long[] randomFilms(Random random) {
+        long[] films = new long[LIKES_PER_USER];
+        int size = 0;
+        while (size < films.length) {
+            long film = 1 + (long) (FILMS * Math.pow(random.nextDouble(), 2));
+            boolean repeated = false;
+            for (int i = 0; i < size && !repeated; i++) {
+                repeated = films[i] == film;
+            }
+            if (!repeated) {
+                films[size++] = film;
+            }
+        }
+        Arrays.sort(films);
+        return films;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmSearchIndex;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Поиск по 1 млн фильмов. Названия и описания собираются из словаря русских псевдослов с частотами
+ * по закону Ципфа, запросы — из одного-двух слов того же словаря. Тексты фильмов генерируются
+ * по номеру при обращении и в памяти не хранятся, поэтому прирост кучи — это размер самого индекса.
+ */
+@Slf4j
+@Tag("benchmark")
+public class FilmSearchBenchmarkTest {
+    static final int FILMS = 1_000_000;
+    static final int VOCABULARY = 20_000;
+    static final int LIMIT = 20;
+    static final int ITERATIONS = 10_000;
+
+    @Test
+    void searchMillionFilms() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = BenchmarkData.russianWord(i);
+        }
+        double[] cumulative = BenchmarkData.zipf(VOCABULARY);
+        List<FilmSearchIndex.Document> films = new AbstractList<>() {
+            @Override
+            public FilmSearchIndex.Document get(int index) {
+                Random filmRandom = new Random(index);
+                return new FilmSearchIndex.Document(index + 1,
+                        BenchmarkData.randomText(filmRandom, words, cumulative, 1 + filmRandom.nextInt(4)),
+                        BenchmarkData.randomText(filmRandom, words, cumulative, 10 + filmRandom.nextInt(16)));
+            }
+
+            @Override
+            public int size() {
+                return FILMS;
+            }
+        };
+
+        FilmSearchIndex index = new FilmSearchIndex(null);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        index.rebuild(films);
+        log.info("Построение индекса по {} фильмам: {} мс", FILMS, (System.nanoTime() - start) / 1_000_000);
+        System.gc();
+        log.info("Индекс занимает около {} МБ", (runtime.totalMemory() - runtime.freeMemory() - heapBefore) >> 20);
+
+        assertFalse(index.search(words[0], LIMIT).isEmpty(), "Самое частое слово ничего не нашло");
+        String[] queries = new String[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            String first = words[random.nextInt(VOCABULARY)];
+            queries[i] = random.nextBoolean() ? first : first + " " + words[random.nextInt(VOCABULARY)];
+        }
+        int[] next = {0};
+        BenchmarkData.sortedNanos(ITERATIONS, () -> index.search(queries[next[0]++ % ITERATIONS], LIMIT));
+        long[] search = BenchmarkData.sortedNanos(ITERATIONS,
+                () -> index.search(queries[next[0]++ % ITERATIONS], LIMIT));
+        log.info("Поиск по одному-двум словам: {}", BenchmarkData.describe(search));
+
+        long[] frequent = BenchmarkData.sortedNanos(100, () -> index.search(words[0], LIMIT));
+        log.info("Поиск по самому частому слову: {}", BenchmarkData.describe(frequent));
+        assertTrue(BenchmarkData.percentile(search, 0.99) < 5_000_000, "Поиск дольше 5 мс");
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.storage.user.FriendshipGraph;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FriendshipGraph.class})
+@ContextConfiguration(classes = {FilmorateApplication.class})
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class FriendSuggestionsBenchmarkTest {
+    static final int USERS = 3_000;
+    static final int FRIENDS_PER_USER = 1_000;
+    static final int LIMIT = 10;
+    static final int SQL_ITERATIONS = 10;
+    static final int GRAPH_ITERATIONS = 1_000;
+    static final String SUGGESTIONS_QUERY = "SELECT f2.friend_id, COUNT(*) AS mutual FROM friendship f1 " +
+            "INNER JOIN friendship f2 ON f2.user_id = f1.friend_id " +
+            "WHERE f1.user_id = ? AND f2.friend_id <> ? " +
+            "AND f2.friend_id NOT IN (SELECT friend_id FROM friendship WHERE user_id = ?) " +
+            "GROUP BY f2.friend_id ORDER BY mutual DESC, f2.friend_id LIMIT ?";
+
+    FriendshipGraph friendshipGraph;
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void graphTraversalAgainstJoins() {
+        BenchmarkData.seedUsers(jdbcTemplate, USERS);
+        BenchmarkData.seedFriendships(jdbcTemplate, USERS, FRIENDS_PER_USER, 42);
+        long start = System.nanoTime();
+        friendshipGraph.rebuild();
+        log.info("Построение графа из {} связей: {} мс", USERS * FRIENDS_PER_USER,
+                (System.nanoTime() - start) / 1_000_000);
+
+        Random random = new Random(7);
+        long checked = 1 + random.nextInt(USERS);
+        List<Long> expected = jdbcTemplate.query(SUGGESTIONS_QUERY, (rs, rowNum) -> rs.getLong("friend_id"),
+                checked, checked, checked, LIMIT);
+        assertEquals(expected, friendshipGraph.suggestFriends(checked, LIMIT).stream()
+                .map(FriendshipGraph.Suggestion::userId)
+                .toList());
+
+        long[] sql = BenchmarkData.sortedNanos(SQL_ITERATIONS, () -> {
+            long user = 1 + random.nextInt(USERS);
+            jdbcTemplate.queryForList(SUGGESTIONS_QUERY, user, user, user, LIMIT);
+        });
+        BenchmarkData.sortedNanos(GRAPH_ITERATIONS, () -> friendshipGraph.suggestFriends(1 + random.nextInt(USERS),
+                LIMIT));
+        long[] graph = BenchmarkData.sortedNanos(GRAPH_ITERATIONS,
+                () -> friendshipGraph.suggestFriends(1 + random.nextInt(USERS), LIMIT));
+
+        log.info("Рекомендации друзей при {} друзьях, SQL: {}", FRIENDS_PER_USER, BenchmarkData.describe(sql));
+        log.info("Рекомендации друзей при {} друзьях, граф: {}", FRIENDS_PER_USER, BenchmarkData.describe(graph));
+        assertTrue(BenchmarkData.percentile(graph, 0.99) < 10_000_000, "Рекомендации дольше 10 мс");
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Пропускная способность и p99 /films и /films/{id} с разными режимами журнала HTTP:
+ * off — Logbook выключен уровнем INFO; full — как было раньше, каждый запрос с телом без ограничения размера;
+ * sampled — настройки по умолчанию, без тел, 1% выборки плюс ошибки и медленные запросы.
+ * Ответы /films большие: у каждого фильма массив из LIKES / FILMS лайков.
+ */
+@Slf4j
+@Tag("benchmark")
+public class HttpLoggingBenchmarkTest {
+    static final String DATABASE = "http-logging-benchmark";
+    static final int USERS = 2_000;
+    static final int FILMS = 200;
+    static final int LIKES = 40_000;
+    static final int CLIENTS = 32;
+    static final Duration WARMUP = Duration.ofSeconds(5);
+    static final Duration MEASURE = Duration.ofSeconds(15);
+
+    @Test
+    void samplingAgainstFullLogging() throws Exception {
+        JdbcTemplate jdbc = BenchmarkData.createDatabase(DATABASE);
+        BenchmarkData.seedUsers(jdbc, USERS);
+        BenchmarkData.seedFilms(jdbc, FILMS);
+        BenchmarkData.seedFilmGenres(jdbc, FILMS);
+        BenchmarkData.seedLikes(jdbc, USERS, FILMS, LIKES, 42);
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("off", List.of("--logging.level.org.zalando.logbook=INFO"));
+        modes.put("full", List.of("--filmorate.http-log.sample-rate=1", "--filmorate.http-log.include-body=true",
+                "--logbook.write.max-body-size=-1"));
+        modes.put("sampled", List.of());
+
+        try {
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                String[] args = Stream.concat(Stream.of(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1",
+                        "--filmorate.likes.repair-on-startup=true"), mode.getValue().stream())
+                        .toArray(String[]::new);
+                try (ConfigurableApplicationContext app = new SpringApplicationBuilder(FilmorateApplication.class)
+                        .run(args)) {
+                    int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                    LoadGenerator generator = new LoadGenerator(port);
+                    generator
+                            .route("films", 1, random -> HttpRequest.newBuilder(generator.uri("/films")))
+                            .route("film", 1, random -> HttpRequest.newBuilder(
+                                    generator.uri("/films/" + (1 + random.nextInt(FILMS)))));
+                    generator.run(CLIENTS, WARMUP, 0);
+                    for (LoadGenerator.RouteResult result : generator.run(CLIENTS, MEASURE, 0).values()) {
+                        log.info("Журнал HTTP {}, {}: {}", mode.getKey(), result.route(), result.describe());
+                        assertEquals(0, result.errors(), "Ошибки на маршруте " + result.route());
+                    }
+                    awaitHttpLogQueue();
+                }
+            }
+        } finally {
+            jdbc.execute("SHUTDOWN");
+        }
+    }
+
+    /**
+     * Следующий контекст перенастраивает logback и останавливает консоль, поэтому хвост очереди журнала
+     * из режима full нужно дописать до закрытия контекста.
+     */
+    private static void awaitHttpLogQueue() throws InterruptedException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        AsyncAppender httpLog = (AsyncAppender) context.getLogger("org.zalando.logbook").getAppender("HTTP_LOG");
+        while (httpLog != null && httpLog.getNumberOfElementsInQueue() > 0) {
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@Tag("benchmark")
+public class LikeSetMemoryBenchmarkTest {
+    static final int LIKES = 500_000;
+    static final int USERS = 5_000_000;
+
+    @Test
+    void footprintAgainstHashSet() {
+        Random random = new Random(42);
+        Set<Long> boxed = new HashSet<>();
+        LikeSet.Builder builder = LikeSet.builder(LIKES);
+        while (boxed.size() < LIKES) {
+            long userId = 1 + random.nextInt(USERS);
+            if (boxed.add(userId)) {
+                builder.add(userId);
+            }
+        }
+        LikeSet compact = builder.build();
+        assertEquals(boxed, compact);
+
+        long boxedBytes = GraphLayout.parseInstance(boxed).totalSize();
+        long compactBytes = GraphLayout.parseInstance(compact).totalSize();
+        log.info("{} лайков: HashSet<Long> {} байт ({} на лайк), LikeSet {} байт ({} на лайк)", LIKES,
+                boxedBytes, boxedBytes / LIKES, compactBytes, compactBytes / LIKES);
+
+        long[] boxedLookups = BenchmarkData.sortedNanos(100_000, () -> boxed.contains(1L + random.nextInt(USERS)));
+        long[] compactLookups = BenchmarkData.sortedNanos(100_000, () -> compact.contains(1L + random.nextInt(USERS)));
+        log.info("Проверка лайка, HashSet<Long>: {}", BenchmarkData.describe(boxedLookups));
+        log.info("Проверка лайка, LikeSet: {}", BenchmarkData.describe(compactLookups));
+        assertTrue(compactBytes * 4 < boxedBytes, "LikeSet должен занимать в разы меньше памяти");
+    }
+}
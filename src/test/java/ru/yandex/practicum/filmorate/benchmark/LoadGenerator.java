@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Генератор нагрузки на запущенное приложение. Каждый из clients клиентов в своём виртуальном потоке
+ * выбирает маршрут по весам смеси и ждёт ответа. Время ответа каждого маршрута пишется в свою
+ * HDR-гистограмму.
+ * <p>
+ * Без заданной интенсивности клиенты шлют следующий запрос сразу после ответа. С интенсивностью rate
+ * запросов в секунду у каждого клиента своё расписание, и задержка отсчитывается от запланированного
+ * момента отправки: если сервер затормозил, ожидание очереди попадает в гистограмму, а не теряется
+ * (coordinated omission).
+ */
+public class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String baseUrl;
+    private final List<Route> routes = new ArrayList<>();
+    private int totalWeight;
+
+    public LoadGenerator(int port) {
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    /**
+     * Маршрут смеси. request получает генератор случайных чисел клиента и строит запрос относительно baseUrl.
+     */
+    public LoadGenerator route(String name, int weight, Function<Random, HttpRequest.Builder> request) {
+        if (weight > 0) {
+            routes.add(new Route(name, weight, request));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    public URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    /**
+     * Прогон длительностью duration. rate — общая интенсивность в запросах в секунду, 0 — без ограничения.
+     */
+    public Map<String, RouteResult> run(int clients, Duration duration, double rate) throws InterruptedException {
+        Map<String, ConcurrentHistogram> histograms = new LinkedHashMap<>();
+        Map<String, LongAdder> errors = new LinkedHashMap<>();
+        for (Route route : routes) {
+            histograms.put(route.name(), new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3));
+            errors.put(route.name(), new LongAdder());
+        }
+        long intervalNanos = rate > 0 ? (long) (clients * 1e9 / rate) : 0;
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                Random random = new Random(i);
+                long firstSend = start + (intervalNanos > 0 ? intervalNanos * i / clients : 0);
+                executor.submit(() -> {
+                    long intended = firstSend;
+                    while (intended < deadline) {
+                        if (intervalNanos > 0) {
+                            LockSupport.parkNanos(intended - System.nanoTime());
+                        } else {
+                            intended = System.nanoTime();
+                        }
+                        Route route = pick(random);
+                        boolean failed;
+                        try {
+                            HttpRequest request = route.request().apply(random)
+                                    .timeout(Duration.ofNanos(HIGHEST_TRACKABLE_NANOS))
+                                    .build();
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            failed = status >= 400;
+                        } catch (Exception e) {
+                            failed = true;
+                        }
+                        long latency = Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS);
+                        histograms.get(route.name()).recordValue(latency);
+                        if (failed) {
+                            errors.get(route.name()).increment();
+                        }
+                        intended += intervalNanos;
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, RouteResult> results = new LinkedHashMap<>();
+        histograms.forEach((name, histogram) -> results.put(name,
+                new RouteResult(name, histogram.copy(), errors.get(name).sum(), seconds)));
+        return results;
+    }
+
+    private Route pick(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Route route : routes) {
+            value -= route.weight();
+            if (value < 0) {
+                return route;
+            }
+        }
+        throw new IllegalStateException("Смесь маршрутов пуста");
+    }
+
+    private record Route(String name, int weight, Function<Random, HttpRequest.Builder> request) {
+    }
+
+    public record RouteResult(String route, Histogram histogram, long errors, double seconds) {
+        public long count() {
+            return histogram.getTotalCount();
+        }
+
+        public double perSecond() {
+            return count() / seconds;
+        }
+
+        public double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        public String describe() {
+            return String.format("%d запросов, %.0f в секунду, p50 %.2f мс, p99 %.2f мс, p99.9 %.2f мс, "
+                            + "максимум %.2f мс, ошибок %d", count(), perSecond(), percentileMillis(50),
+                    percentileMillis(99), percentileMillis(99.9), histogram.getMaxValue() / 1e6, errors);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.PrintStream;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Нагрузочный прогон смешанного трафика: mvn test -Pload. Приложение поднимается на свободном порту
+ * над базой H2 в памяти, наполненной BenchmarkData, и получает смесь запросов от {@link LoadGenerator}.
+ * По каждому маршруту выводятся пропускная способность и p50/p99/p99.9, а в target/load-test пишутся
+ * summary.csv и распределения HdrHistogram (*.hgrm).
+ * <p>
+ * Всё настраивается системными свойствами:
+ * load.mix — веса маршрутов popular, film, like, friends, по умолчанию popular=35,film=35,like=20,friends=10;
+ * load.clients, load.rate (запросов в секунду на всех, 0 — без ограничения), load.warmup, load.duration;
+ * load.users, load.films, load.likesPerUser, load.friendsPerUser — объём данных.
+ * Свойства load.app.* передаются приложению: -Dload.app.spring.threads.virtual.enabled=true.
+ */
+@Slf4j
+@Tag("benchmark")
+@Tag("load")
+public class MixedTrafficLoadTest {
+    static final String DATABASE = "mixed-traffic-load";
+    static final String APP_PREFIX = "load.app.";
+    static final int FRESH_USERS = 2_000;
+
+    @Test
+    void mixedTraffic() throws Exception {
+        int users = Integer.getInteger("load.users", 5_000);
+        int films = Integer.getInteger("load.films", 2_000);
+        int likesPerUser = Integer.getInteger("load.likesPerUser", 20);
+        int friendsPerUser = Integer.getInteger("load.friendsPerUser", 20);
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", "popular=35,film=35,like=20,friends=10"));
+        int clients = Integer.getInteger("load.clients", 64);
+        double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+
+        JdbcTemplate jdbc = BenchmarkData.createDatabase(DATABASE);
+        BenchmarkData.seedUsers(jdbc, users + FRESH_USERS);
+        BenchmarkData.seedFilms(jdbc, films);
+        BenchmarkData.seedFilmGenres(jdbc, films);
+        BenchmarkData.seedLikes(jdbc, users, films, users * likesPerUser, 42);
+        BenchmarkData.seedFriendships(jdbc, users, friendsPerUser, 42);
+
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1",
+                "--filmorate.likes.repair-on-startup=true",
+                "--logging.level.org.zalando.logbook=INFO"));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(APP_PREFIX))
+                .forEach(name -> args.add("--" + name.substring(APP_PREFIX.length()) + "="
+                        + System.getProperty(name)));
+
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run(args.toArray(new String[0]))) {
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            AtomicLong likes = new AtomicLong();
+            LoadGenerator generator = new LoadGenerator(port);
+            generator
+                    .route("popular", mix.getOrDefault("popular", 0), random -> HttpRequest.newBuilder(
+                            generator.uri("/films/popular?count=10")))
+                    .route("film", mix.getOrDefault("film", 0), random -> HttpRequest.newBuilder(
+                            generator.uri("/films/" + (1 + random.nextInt(films)))))
+                    .route("like", mix.getOrDefault("like", 0), random -> {
+                        long like = likes.getAndIncrement();
+                        long user = users + 1 + like % FRESH_USERS;
+                        long film = 1 + like / FRESH_USERS % films;
+                        return HttpRequest.newBuilder(generator.uri("/films/" + film + "/like/" + user))
+                                .PUT(HttpRequest.BodyPublishers.noBody());
+                    })
+                    .route("friends", mix.getOrDefault("friends", 0), random -> HttpRequest.newBuilder(
+                            generator.uri("/users/" + (1 + random.nextInt(users)) + "/friends")));
+
+            log.info("Прогрев {} с, {} клиентов, смесь {}", warmup.toSeconds(), clients, mix);
+            generator.run(clients, warmup, rate);
+            Map<String, LoadGenerator.RouteResult> results = generator.run(clients, duration, rate);
+
+            Path reports = Path.of("target", "load-test");
+            Files.createDirectories(reports);
+            List<String> summary = new ArrayList<>();
+            summary.add("route,count,per_second,p50_ms,p99_ms,p999_ms,max_ms,errors");
+            for (LoadGenerator.RouteResult result : results.values()) {
+                log.info("{}: {}", result.route(), result.describe());
+                summary.add(String.format(Locale.ROOT, "%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%d",
+                        result.route(), result.count(), result.perSecond(), result.percentileMillis(50),
+                        result.percentileMillis(99), result.percentileMillis(99.9),
+                        result.histogram().getMaxValue() / 1e6, result.errors()));
+                try (PrintStream out = new PrintStream(Files.newOutputStream(
+                        reports.resolve(result.route() + ".hgrm")))) {
+                    result.histogram().outputPercentileDistribution(out, 1e6);
+                }
+            }
+            Files.write(reports.resolve("summary.csv"), summary);
+            for (LoadGenerator.RouteResult result : results.values()) {
+                assertEquals(0, result.errors(), "Ошибки на маршруте " + result.route());
+            }
+        } finally {
+            jdbc.execute("SHUTDOWN");
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] route = part.trim().split("=");
+            weights.put(route[0], Integer.parseInt(route[1]));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.storage.user.FriendshipGraph;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск общих друзей: двойное соединение friendship в SQL против слияния массивов в {@link FriendshipGraph}.
+ * Оба варианта возвращают только id, чтобы сравнивалась сама операция пересечения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MutualFriendsBenchmark {
+    private static final String MUTUAL_FRIENDS_QUERY = "SELECT f1.friend_id FROM friendship f1 " +
+            "INNER JOIN friendship f2 ON f1.friend_id = f2.friend_id " +
+            "WHERE f1.user_id = ? AND f2.user_id = ?";
+    private static final int PAIRS = 1024;
+
+    @Param({"5000"})
+    int users;
+
+    @Param({"20", "200"})
+    int friendsPerUser;
+
+    JdbcTemplate jdbc;
+    FriendshipGraph graph;
+    long[][] pairs;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbc = BenchmarkData.createDatabase("mutual-friends-" + friendsPerUser);
+        BenchmarkData.seedUsers(jdbc, users);
+        BenchmarkData.seedFriendships(jdbc, users, friendsPerUser, 42);
+        graph = new FriendshipGraph(jdbc);
+        graph.rebuild();
+
+        Random random = new Random(7);
+        pairs = new long[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            pairs[i] = new long[]{1 + random.nextInt(users), 1 + random.nextInt(users)};
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Long> sqlSelfJoin() {
+        long[] pair = nextPair();
+        return jdbc.queryForList(MUTUAL_FRIENDS_QUERY, Long.class, pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public long[] graphIntersection() {
+        long[] pair = nextPair();
+        return graph.getMutualFriends(pair[0], pair[1]);
+    }
+
+    private long[] nextPair() {
+        next = (next + 1) & (PAIRS - 1);
+        return pairs[next];
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@Tag("benchmark")
+public class MutualFriendsBenchmarkTest {
+
+    @Test
+    void graphAgainstSelfJoin() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(MutualFriendsBenchmark.class.getName())
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build())
+                .run();
+
+        Map<String, Double> scores = new HashMap<>();
+        for (RunResult result : results) {
+            String method = result.getParams().getBenchmark();
+            String key = method.substring(method.lastIndexOf('.') + 1) + "/"
+                    + result.getParams().getParam("friendsPerUser");
+            scores.put(key, result.getPrimaryResult().getScore());
+            log.info("{}: {} мкс", key, String.format("%.2f", result.getPrimaryResult().getScore()));
+        }
+        for (String friends : new String[]{"20", "200"}) {
+            assertTrue(scores.get("graphIntersection/" + friends) < scores.get("sqlSelfJoin/" + friends),
+                    "Пересечение в памяти медленнее SQL при " + friends + " друзьях");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.storage.film.PopularFilmsLeaderboard;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({PopularFilmsLeaderboard.class})
+@ContextConfiguration(classes = {FilmorateApplication.class})
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class PopularFilmsBenchmarkTest {
+    static final int USERS = 20_000;
+    static final int FILMS = 10_000;
+    static final int LIKES = 1_000_000;
+    static final int TOP = 10;
+    static final int GENRE = 3;
+    static final int YEAR = 1980;
+    static final int SQL_ITERATIONS = 20;
+    static final int MEMORY_ITERATIONS = 10_000;
+
+    PopularFilmsLeaderboard leaderboard;
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void leaderboardAgainstLikeCountIndex() {
+        BenchmarkData.seedUsers(jdbcTemplate, USERS);
+        BenchmarkData.seedFilms(jdbcTemplate, FILMS);
+        BenchmarkData.seedFilmGenres(jdbcTemplate, FILMS);
+        BenchmarkData.seedLikes(jdbcTemplate, USERS, FILMS, LIKES, 42);
+
+        long start = System.nanoTime();
+        leaderboard.rebuild();
+        log.info("Построение рейтинга по {} лайкам: {} мс", LIKES, (System.nanoTime() - start) / 1_000_000);
+        assertTrue(leaderboard.isConsistentWithDatabase(TOP), "Рейтинг расходится с базой");
+
+        BenchmarkData.sortedNanos(2, () -> leaderboard.getTopFromDatabase(TOP));
+        BenchmarkData.sortedNanos(MEMORY_ITERATIONS, () -> leaderboard.getTop(TOP));
+        long[] sql = BenchmarkData.sortedNanos(SQL_ITERATIONS, () -> leaderboard.getTopFromDatabase(TOP));
+        long[] memory = BenchmarkData.sortedNanos(MEMORY_ITERATIONS, () -> leaderboard.getTop(TOP));
+
+        log.info("Топ-{} по {} лайкам, SQL по like_count: {}", TOP, LIKES, BenchmarkData.describe(sql));
+        log.info("Топ-{} по {} лайкам, рейтинг в памяти: {}", TOP, LIKES, BenchmarkData.describe(memory));
+
+        long[] updates = BenchmarkData.sortedNanos(MEMORY_ITERATIONS, () -> {
+            leaderboard.increment(FILMS / 2);
+            leaderboard.decrement(FILMS / 2);
+        });
+        log.info("Изменение счётчика (два обновления): {}", BenchmarkData.describe(updates));
+        assertTrue(memory[memory.length / 2] < sql[sql.length / 2], "Рейтинг в памяти медленнее запроса");
+
+        assertTrue(leaderboard.isConsistentWithDatabase(TOP, GENRE, YEAR), "Рейтинг с фильтром расходится с базой");
+        long[] filteredSql = BenchmarkData.sortedNanos(SQL_ITERATIONS,
+                () -> leaderboard.getTopFromDatabase(TOP, GENRE, YEAR));
+        long[] filteredMemory = BenchmarkData.sortedNanos(MEMORY_ITERATIONS,
+                () -> leaderboard.getTop(TOP, GENRE, YEAR));
+        log.info("Топ-{} по жанру и году, SQL по like_count: {}", TOP, BenchmarkData.describe(filteredSql));
+        log.info("Топ-{} по жанру и году, рейтинг в памяти: {}", TOP, BenchmarkData.describe(filteredMemory));
+        assertTrue(filteredMemory[filteredMemory.length / 2] < filteredSql[filteredSql.length / 2],
+                "Рейтинг с фильтром в памяти медленнее запроса");
+    }
+}
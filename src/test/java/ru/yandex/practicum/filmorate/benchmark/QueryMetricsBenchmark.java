@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена {@link QueryMetrics} на горячем пути: чтение фильма по id через JdbcTemplate напрямую и через
+ * QueryMetrics.record, а также сама запись в таймер и счётчик без запроса. Порог медленных запросов
+ * выставлен в минуту, чтобы замер не включал журнал.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueryMetricsBenchmark {
+    static final String DATABASE = "query-metrics-benchmark";
+    static final String QUERY = "SELECT * FROM film WHERE id = ?";
+    static final int FILMS = 1_000;
+
+    JdbcTemplate jdbc;
+    QueryMetrics queries;
+    RowMapper<Film> mapper = new FilmRowMapper();
+    Object[] params = {1L};
+    Film film;
+    long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbc = BenchmarkData.createDatabase(DATABASE);
+        BenchmarkData.seedFilms(jdbc, FILMS);
+        queries = new QueryMetrics(new SimpleMeterRegistry(), Duration.ofMinutes(1));
+        film = jdbc.queryForObject(QUERY, mapper, params);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public Film plainQuery() {
+        return jdbc.queryForObject(QUERY, mapper, nextId());
+    }
+
+    @Benchmark
+    public Film recordedQuery() {
+        Object[] id = {nextId()};
+        return queries.record("film.getById", QUERY, id, () -> jdbc.queryForObject(QUERY, mapper, id), row -> 1);
+    }
+
+    @Benchmark
+    public Film recordOnly() {
+        return queries.record("film.getById", QUERY, params, () -> film, row -> 1);
+    }
+
+    private long nextId() {
+        next = next % FILMS + 1;
+        return next;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Запуск {@link QueryMetricsBenchmark}: mvn test -Pjmh. Результаты пишутся в target/jmh/query-metrics.json.
+ * Запись одного запроса в метрики должна стоить меньше десятой доли самого дешёвого запроса — чтения
+ * фильма по первичному ключу.
+ */
+@Slf4j
+@Tag("benchmark")
+@Tag("jmh")
+public class QueryMetricsBenchmarkTest {
+    static final double MAX_OVERHEAD = 0.1;
+
+    @Test
+    void queryMetricsOverhead() throws Exception {
+        Path result = Path.of("target", "jmh", "query-metrics.json");
+        Files.createDirectories(result.getParent());
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(QueryMetricsBenchmark.class.getName())
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build()).run();
+
+        Map<String, Double> scores = new HashMap<>();
+        for (RunResult run : results) {
+            String method = run.getParams().getBenchmark();
+            scores.put(method.substring(method.lastIndexOf('.') + 1), run.getPrimaryResult().getScore());
+        }
+        double overhead = scores.get("recordOnly") / scores.get("plainQuery");
+        log.info("Запрос {} нс, с метриками {} нс, запись метрик {} нс ({}% запроса)",
+                String.format("%.0f", scores.get("plainQuery")), String.format("%.0f", scores.get("recordedQuery")),
+                String.format("%.0f", scores.get("recordOnly")), String.format("%.1f", overhead * 100));
+        assertTrue(overhead < MAX_OVERHEAD, "Запись метрик слишком дорога: " + overhead);
+    }
+}
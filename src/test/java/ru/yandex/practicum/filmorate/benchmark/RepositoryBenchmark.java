@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути репозиториев на базе H2 в памяти, наполненной BenchmarkData. Приложение поднимается
+ * без веб-сервера, репозитории берутся из контекста со всеми индексами в памяти. Кэш фильмов отключён,
+ * чтобы getById измерял загрузку из базы. Объёмы задаются параметрами users, films, likesPerUser
+ * и friendsPerUser.
+ * <p>
+ * addLike ставит лайки от отдельных пользователей без лайков, каждый раз новую пару, поэтому
+ * данные остальных замеров не меняются: каждый замер JMH запускает в своей JVM с заново наполненной базой.
+ * Мапперы строк разбирают заранее прочитанный CachedRowSet, время указано на одну строку.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+    static final String DATABASE = "repository-benchmark";
+    static final int FRESH_USERS = 1_000;
+    static final int MAPPED_ROWS = 1_000;
+    static final int KEYS = 1024;
+
+    @Param({"10000"})
+    int users;
+
+    @Param({"5000"})
+    int films;
+
+    @Param({"20"})
+    int likesPerUser;
+
+    @Param({"20"})
+    int friendsPerUser;
+
+    ConfigurableApplicationContext app;
+    JdbcTemplate jdbc;
+    FilmRepository filmRepository;
+    UserRepository userRepository;
+    FilmRowMapper filmRowMapper = new FilmRowMapper();
+    UserRowMapper userRowMapper = new UserRowMapper();
+    CachedRowSet filmRows;
+    CachedRowSet userRows;
+    long[] filmIds;
+    long[] userIds;
+    int next;
+    int likes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbc = BenchmarkData.createDatabase(DATABASE);
+        BenchmarkData.seedUsers(jdbc, users + FRESH_USERS);
+        BenchmarkData.seedFilms(jdbc, films);
+        BenchmarkData.seedFilmGenres(jdbc, films);
+        BenchmarkData.seedLikes(jdbc, users, films, users * likesPerUser, 42);
+        BenchmarkData.seedFriendships(jdbc, users, friendsPerUser, 42);
+        app = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1",
+                        "--filmorate.film-cache.maximum-size=0",
+                        "--filmorate.likes.repair-on-startup=true",
+                        "--logging.level.root=WARN");
+        filmRepository = app.getBean(FilmRepository.class);
+        userRepository = app.getBean(UserRepository.class);
+
+        filmRows = cachedRows("SELECT * FROM film LIMIT " + MAPPED_ROWS);
+        userRows = cachedRows("SELECT * FROM users LIMIT " + MAPPED_ROWS);
+
+        Random random = new Random(7);
+        filmIds = new long[KEYS];
+        userIds = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            filmIds[i] = 1 + random.nextInt(films);
+            userIds[i] = 1 + random.nextInt(users);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return filmRepository.getFilms();
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmRepository.getById(filmIds[nextKey()]);
+    }
+
+    @Benchmark
+    public Collection<Film> getPopularFilms() {
+        return filmRepository.getPopularFilms(10, null, null);
+    }
+
+    @Benchmark
+    public void addLike() {
+        long user = users + 1 + likes % FRESH_USERS;
+        long film = 1 + likes / FRESH_USERS % films;
+        likes++;
+        filmRepository.addLike(film, user);
+    }
+
+    @Benchmark
+    public List<User> getMutualFriends() {
+        int key = nextKey();
+        return userRepository.getMutualFriends(userIds[key], userIds[(key + 1) & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    public List<User> getAllFriends() {
+        return userRepository.getAllFriends(userIds[nextKey()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAPPED_ROWS)
+    public void filmRowMapper(Blackhole blackhole) throws SQLException {
+        filmRows.beforeFirst();
+        int row = 0;
+        while (filmRows.next()) {
+            blackhole.consume(filmRowMapper.mapRow(filmRows, row++));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAPPED_ROWS)
+    public void userRowMapper(Blackhole blackhole) throws SQLException {
+        userRows.beforeFirst();
+        int row = 0;
+        while (userRows.next()) {
+            blackhole.consume(userRowMapper.mapRow(userRows, row++));
+        }
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return next;
+    }
+
+    private CachedRowSet cachedRows(String query) {
+        return jdbc.execute((ConnectionCallback<CachedRowSet>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+                rows.populate(statement.executeQuery(query));
+                return rows;
+            }
+        });
+    }
+}
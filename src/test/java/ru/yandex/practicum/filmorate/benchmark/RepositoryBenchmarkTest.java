@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Запуск {@link RepositoryBenchmark}: mvn test -Pjmh. Результаты пишутся в JSON-формате JMH
+ * в target/jmh/repository-benchmark.json (путь меняется свойством jmh.result) — его можно сравнивать
+ * между сборками. Объёмы данных задаются свойствами -Djmh.users, -Djmh.films, -Djmh.likesPerUser
+ * и -Djmh.friendsPerUser, отбор замеров — регулярным выражением -Djmh.include.
+ */
+@Slf4j
+@Tag("benchmark")
+@Tag("jmh")
+public class RepositoryBenchmarkTest {
+    static final List<String> PARAMS = List.of("users", "films", "likesPerUser", "friendsPerUser");
+
+    @Test
+    void repositoryHotPaths() throws Exception {
+        Path result = Path.of(System.getProperty("jmh.result", "target/jmh/repository-benchmark.json"));
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(RepositoryBenchmark.class.getName() + "." + System.getProperty("jmh.include", ".*"))
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        for (String param : PARAMS) {
+            String value = System.getProperty("jmh." + param);
+            if (value != null) {
+                options.param(param, value);
+            }
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        for (RunResult run : results) {
+            String method = run.getParams().getBenchmark();
+            log.info("{}: {} {}", method.substring(method.lastIndexOf('.') + 1),
+                    String.format("%.2f", run.getPrimaryResult().getScore()), run.getPrimaryResult().getScoreUnit());
+        }
+        assertTrue(Files.size(result) > 0, "Файл результатов пуст");
+        assertEquals(results.size(), results.stream().filter(run -> run.getPrimaryResult().getScore() > 0).count());
+    }
+}
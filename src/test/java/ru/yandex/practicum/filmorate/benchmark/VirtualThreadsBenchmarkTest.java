@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Пропускная способность и p99 /films и /films/popular при обработке запросов платформенными потоками Tomcat
+ * и виртуальными потоками. В обоих режимах обращения к базе ограничивает пул Hikari: запросы сверх
+ * maximum-pool-size ждут соединения не дольше connection-timeout. Приложение поднимается на настоящем порту
+ * над общей базой H2 в памяти, нагрузку дают CLIENTS клиентов, каждый шлёт следующий запрос сразу
+ * после ответа на предыдущий.
+ */
+@Slf4j
+@Tag("benchmark")
+public class VirtualThreadsBenchmarkTest {
+    static final String DATABASE = "virtual-threads-benchmark";
+    static final int USERS = 2_000;
+    static final int FILMS = 200;
+    static final int LIKES = 20_000;
+    static final int POOL_SIZE = 10;
+    static final int CLIENTS = 400;
+    static final long WARMUP_MILLIS = 5_000;
+    static final long MEASURE_MILLIS = 15_000;
+    static final List<String> PATHS = List.of("/films", "/films/popular?count=10");
+
+    @Test
+    void virtualAgainstPlatformThreads() throws Exception {
+        JdbcTemplate jdbc = BenchmarkData.createDatabase(DATABASE);
+        BenchmarkData.seedUsers(jdbc, USERS);
+        BenchmarkData.seedFilms(jdbc, FILMS);
+        BenchmarkData.seedFilmGenres(jdbc, FILMS);
+        BenchmarkData.seedLikes(jdbc, USERS, FILMS, LIKES, 42);
+
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext app = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                    "--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:" + DATABASE + ";DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                    "--spring.threads.virtual.enabled=" + virtual,
+                    "--filmorate.likes.repair-on-startup=true",
+                    "--logging.level.org.zalando.logbook=INFO")) {
+                int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                for (String path : PATHS) {
+                    load(port, path, WARMUP_MILLIS);
+                    Result result = load(port, path, MEASURE_MILLIS);
+                    log.info("{} потоки, {}: {} запросов в секунду, p50 {} мс, p99 {} мс, ошибок {}",
+                            virtual ? "Виртуальные" : "Платформенные", path,
+                            String.format("%.0f", result.perSecond()),
+                            String.format("%.1f", result.percentileMillis(0.5)),
+                            String.format("%.1f", result.percentileMillis(0.99)), result.errors());
+                    assertEquals(0, result.errors(), "Часть запросов завершилась ошибкой");
+                }
+            }
+        }
+    }
+
+    private static Result load(int port, String path, long durationMillis) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + durationMillis * 1_000_000;
+        List<Future<long[]>> clients = new ArrayList<>(CLIENTS);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(executor.submit(() -> {
+                    long[] nanos = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == nanos.length) {
+                            nanos = Arrays.copyOf(nanos, count * 2);
+                        }
+                        nanos[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(nanos, count);
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] all = new long[0];
+        for (Future<long[]> future : clients) {
+            long[] nanos = future.get();
+            int from = all.length;
+            all = Arrays.copyOf(all, from + nanos.length);
+            System.arraycopy(nanos, 0, all, from, nanos.length);
+        }
+        Arrays.sort(all);
+        return new Result(all, elapsed, errors.get());
+    }
+
+    private record Result(long[] sortedNanos, long elapsedNanos, long errors) {
+        double perSecond() {
+            return sortedNanos.length * 1e9 / elapsedNanos;
+        }
+
+        double percentileMillis(double percentile) {
+            return BenchmarkData.percentile(sortedNanos, percentile) / 1e6;
+        }
+    }
+}
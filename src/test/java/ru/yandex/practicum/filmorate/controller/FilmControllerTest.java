@@ -1,173 +1,155 @@
-//package ru.yandex.practicum.filmorate.controller;
-//
-//import jakarta.validation.ConstraintViolation;
-//import jakarta.validation.Validation;
-//import jakarta.validation.Validator;
-//import jakarta.validation.ValidatorFactory;
-//import org.junit.jupiter.api.BeforeEach;
-//import org.junit.jupiter.api.Test;
-//import ru.yandex.practicum.filmorate.exception.ConditionsNotMetException;
-//import ru.yandex.practicum.filmorate.model.Film;
-//import ru.yandex.practicum.filmorate.service.FilmService;
-//import ru.yandex.practicum.filmorate.dal.storage.film.FilmStorage;
-//import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
-//
-//import java.time.LocalDate;
-//import java.util.Set;
-//
-//import static org.junit.jupiter.api.Assertions.*;
-//
-//public class FilmControllerTest {
-//
-//    private FilmController controller;
-//    private Validator validator;
-//    private FilmService service;
-//    private UserStorage userStorage;
-//    private FilmStorage filmStorage;
-//
-//    @BeforeEach
-//    public void setUp() {
-//        filmStorage = new InMemoryFilmStorage();
-//        userStorage = new InMemoryUserStorage();
-//
-//        service = new FilmService(filmStorage, userStorage);
-//        controller = new FilmController(service);
-//
-//        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-//        validator = factory.getValidator();
-//    }
-//
-//    @Test
-//    public void shouldPassValidation() {
-//        controller.create(Film.builder()
-//                .name("name1")
-//                .description("description1")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(2021, 4, 5))
-//                .build());
-//
-//        assertEquals(1, controller.getAll().size());
-//    }
-//
-//    @Test
-//    public void shouldNotPassNameValidation() {
-//        Film film = Film.builder()
-//                .name("") // Пустое имя фильма
-//                .description("description1")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(2021, 4, 5))
-//                .build();
-//
-//        // Валидируем объект
-//        Set<ConstraintViolation<Film>> violations = validator.validate(film);
-//
-//        // Проверяем, что ошибка действительно возникла
-//        assertFalse(violations.isEmpty(), "Ожидалась ошибка валидации для пустого имени фильма");
-//
-//        // Дополнительно проверяем, что ошибка связана именно с полем name
-//        boolean hasNameError = violations.stream()
-//                .anyMatch(violation -> violation.getPropertyPath().toString().equals("name"));
-//        assertTrue(hasNameError, "Ожидалась ошибка валидации для поля 'name'");
-//    }
-//
-//    @Test
-//    public void shouldNotPassDescriptionValidation() {
-//        Film film = Film.builder()
-//                .name("The Journey Beyond")
-//                .description("В далёком будущем человечество достигло звёзд, но с каждым открытием приходит новая "
-//                        + "угроза. Группа исследователей отправляется в опасное путешествие через неизведанные галактики, "
-//                        + "чтобы раскрыть тайны древней цивилизации и спасти Землю от надвигающейся катастрофы. На пути "
-//                        + "им предстоит столкнуться с неизвестными формами жизни, преодолеть страхи и сделать сложный выбор, "
-//                        + "который изменит их судьбы навсегда.")
-//                .duration(145)
-//                .releaseDate(LocalDate.of(2023, 10, 15))
-//                .build();
-//
-//        Set<ConstraintViolation<Film>> violations = validator.validate(film);
-//        assertFalse(violations.isEmpty(), "Ожидалась ошибка валидации для слишком длинного описания");
-//    }
-//
-//    @Test
-//    public void shouldNotPassReleaseDateValidation() {
-//        Film film1 = Film.builder()
-//                .name("Ancient Times")
-//                .description("A historical film about forgotten eras.")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(1600, 1, 1))
-//                .build();
-//
-//        Film film2 = Film.builder()
-//                .name("Future Odyssey")
-//                .description("A sci-fi epic about distant futures.")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(2500, 1, 1))
-//                .build();
-//
-//        assertThrows(ConditionsNotMetException.class, () -> controller.create(film1));
-//        controller.create(film2);
-//    }
-//
-//    @Test
-//    public void shouldNotPassDurationValidation() {
-//        Film film = Film.builder()
-//                .name("Negative Duration")
-//                .description("This film has an invalid duration.")
-//                .duration(-192)
-//                .releaseDate(LocalDate.of(2021, 4, 5))
-//                .build();
-//
-//        Set<ConstraintViolation<Film>> violations = validator.validate(film);
-//        assertFalse(violations.isEmpty(), "Ожидалась ошибка валидации для отрицательной продолжительности");
-//    }
-//
-//    @Test
-//    public void emptyFilmShouldNotPassValidation() {
-//        Film film = Film.builder().build();
-//        Set<ConstraintViolation<Film>> violations = validator.validate(film);
-//        assertFalse(violations.isEmpty(), "Ожидалась ошибка валидации для пустого объекта фильма");
-//    }
-//
-//    @Test
-//    public void shouldUpdateFilm() {
-//        controller.create(Film.builder()
-//                .name("name1")
-//                .description("description1")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(2021, 4, 5))
-//                .build());
-//
-//        controller.update(Film.builder()
-//                .id(1L)
-//                .name("name2")
-//                .description("description2")
-//                .duration(50)
-//                .releaseDate(LocalDate.of(2024, 3, 3))
-//                .build());
-//
-//        assertEquals(1, controller.getAll().size());
-//    }
-//
-//    @Test
-//    public void shouldPassDescriptionValidationWith200Symbols() {
-//        controller.create(Film.builder()
-//                .name("name1")
-//                .description("description1")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(2021, 4, 5))
-//                .build());
-//
-//        assertEquals(1, controller.getAll().size());
-//    }
-//
-//    @Test
-//    public void shouldPassReleaseDateValidation() {
-//        controller.create(Film.builder()
-//                .name("name1")
-//                .description("description")
-//                .duration(192)
-//                .releaseDate(LocalDate.of(1895, 12, 28))
-//                .build());
-//
-//        assertEquals(1, controller.getAll().size());
-//    }
-//}
\ No newline at end of file
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.controller.QueryCountMatchers.queryCount;
+import static ru.yandex.practicum.filmorate.controller.QueryCountMatchers.queryCountOf;
+
+/**
+ * Проверки фильмов через HTTP: валидация и число SQL-запросов на каждый маршрут. Контекст общий для всех
+ * тестов, поэтому каждый тест создаёт свои фильмы и не рассчитывает на их точное количество в базе.
+ */
+@SpringBootTest(properties = "filmorate.sql.query-count-header=true")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class FilmControllerTest {
+    static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void shouldPassValidation() throws Exception {
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("name1", "description1", "2021-04-05", 192))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldNotPassNameValidation() throws Exception {
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("", "description1", "2021-04-05", 192))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldNotPassDescriptionValidation() throws Exception {
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("The Journey Beyond", "а".repeat(201), "2023-10-15", 145))))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("The Journey Beyond", "а".repeat(200), "2023-10-15", 145))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldNotPassReleaseDateValidation() throws Exception {
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("Ancient Times", "description", "1600-01-01", 192))))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("Cinema", "description", "1895-12-28", 192))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldNotPassDurationValidation() throws Exception {
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(film("Negative Duration", "description", "2021-04-05", -192))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void emptyFilmShouldNotPassValidation() throws Exception {
+        mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void filmRoutesQueryCount() throws Exception {
+        long filmId = createFilm();
+        long userId = createUser();
+
+        mvc.perform(get("/films/" + filmId)).andExpect(status().isOk()).andExpect(queryCount(3));
+        mvc.perform(get("/films/" + filmId)).andExpect(status().isOk()).andExpect(queryCount(0));
+        mvc.perform(get("/films?limit=5")).andExpect(status().isOk()).andExpect(queryCount(3));
+        mvc.perform(put("/films/" + filmId + "/like/" + userId)).andExpect(status().isOk())
+                .andExpect(queryCount(3));
+        mvc.perform(get("/films/popular?count=5")).andExpect(status().isOk()).andExpect(queryCount(3));
+        mvc.perform(delete("/films/" + filmId + "/like/" + userId)).andExpect(status().isOk())
+                .andExpect(queryCount(3));
+        mvc.perform(get("/films/100000")).andExpect(status().isNotFound()).andExpect(queryCount(1));
+    }
+
+    @Test
+    public void getFilmsQueryCountDoesNotDependOnFilmsCount() throws Exception {
+        createFilm();
+        int before = queryCountOf(mvc.perform(get("/films")).andExpect(status().isOk()).andReturn());
+        long userId = createUser();
+        for (int i = 0; i < 5; i++) {
+            long filmId = createFilm();
+            mvc.perform(put("/films/" + filmId + "/like/" + userId)).andExpect(status().isOk());
+        }
+
+        mvc.perform(get("/films")).andExpect(status().isOk()).andExpect(queryCount(before));
+        mvc.perform(get("/films/popular?count=100")).andExpect(status().isOk()).andExpect(queryCount(3));
+    }
+
+    private long createFilm() throws Exception {
+        Map<String, Object> film = film("name", "description", "1999-09-09", 140);
+        film.put("genres", List.of(Map.of("id", 1), Map.of("id", 2)));
+        MvcResult result = mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(json(film)))
+                .andExpect(status().isOk())
+                .andExpect(queryCount(2))
+                .andReturn();
+        JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertEquals(2, created.get("genres").size());
+        return created.get("id").asLong();
+    }
+
+    private long createUser() throws Exception {
+        int number = USERS.incrementAndGet();
+        Map<String, Object> user = Map.of("login", "filmLogin" + number, "name", "name",
+                "email", number + "film@mail.ru", "birthday", "2000-08-19");
+        MvcResult result = mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(json(user)))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private static Map<String, Object> film(String name, String description, String releaseDate, int duration) {
+        Map<String, Object> film = new HashMap<>();
+        film.put("name", name);
+        film.put("description", description);
+        film.put("releaseDate", releaseDate);
+        film.put("duration", duration);
+        film.put("mpa", Map.of("id", 3));
+        return film;
+    }
+
+    private String json(Object value) throws Exception {
+        return objectMapper.writeValueAsString(value);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки числа SQL-запросов на HTTP-запрос для MockMvc. Число берётся из заголовка
+ * {@link QueryBudgetTracker#QUERY_COUNT_HEADER}, поэтому тест должен включить
+ * filmorate.sql.query-count-header=true.
+ */
+public final class QueryCountMatchers {
+    private QueryCountMatchers() {
+    }
+
+    public static ResultMatcher queryCount(int expected) {
+        return result -> assertEquals(expected, queryCountOf(result),
+                "Неверное число SQL-запросов для " + result.getRequest().getRequestURI());
+    }
+
+    public static ResultMatcher queryCountAtMost(int max) {
+        return result -> {
+            int count = queryCountOf(result);
+            assertTrue(count <= max, String.format("%s потратил %d SQL-запросов, допустимо не больше %d",
+                    result.getRequest().getRequestURI(), count, max));
+        };
+    }
+
+    public static int queryCountOf(MvcResult result) {
+        String header = result.getResponse().getHeader(QueryBudgetTracker.QUERY_COUNT_HEADER);
+        assertNotNull(header, "Нет заголовка " + QueryBudgetTracker.QUERY_COUNT_HEADER);
+        return Integer.parseInt(header);
+    }
+}
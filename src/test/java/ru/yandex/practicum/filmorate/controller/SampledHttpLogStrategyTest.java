@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SampledHttpLogStrategyTest {
+    private static final Duration SLOW = Duration.ofMillis(500);
+    private static final Set<String> STREAMING = Set.of("/films/export");
+
+    @Test
+    void unsampledRequestsLoggedOnlyWhenFailedOrSlowTest() {
+        SampledHttpLogStrategy strategy = new SampledHttpLogStrategy(0, SLOW, false, -1, STREAMING);
+
+        assertFalse(strategy.shouldLog(200, Duration.ofMillis(10)));
+        assertFalse(strategy.shouldLog(304, Duration.ofMillis(10)));
+        assertTrue(strategy.shouldLog(404, Duration.ofMillis(10)));
+        assertTrue(strategy.shouldLog(500, Duration.ofMillis(10)));
+        assertTrue(strategy.shouldLog(200, SLOW));
+    }
+
+    @Test
+    void fullSampleLogsEveryRequestTest() {
+        SampledHttpLogStrategy strategy = new SampledHttpLogStrategy(1, SLOW, false, -1, STREAMING);
+
+        assertTrue(strategy.shouldLog(200, Duration.ZERO));
+    }
+
+    @Test
+    void requestBodyCapturedOnlyWithinLimitTest() {
+        SampledHttpLogStrategy limited = new SampledHttpLogStrategy(1, SLOW, true, 4096, STREAMING);
+
+        assertTrue(limited.fitsCapture("4096"));
+        assertFalse(limited.fitsCapture("4097"));
+        assertFalse(limited.fitsCapture(null));
+        assertFalse(limited.fitsCapture("abc"));
+        assertTrue(new SampledHttpLogStrategy(1, SLOW, true, -1, STREAMING).fitsCapture(null));
+    }
+
+    @Test
+    void streamingResponseBodyNeverCapturedTest() {
+        SampledHttpLogStrategy withBody = new SampledHttpLogStrategy(1, SLOW, true, 4096, STREAMING);
+
+        assertTrue(withBody.capturesResponseBody("/films"));
+        assertFalse(withBody.capturesResponseBody("/films/export"));
+        assertFalse(new SampledHttpLogStrategy(1, SLOW, false, 4096, STREAMING).capturesResponseBody("/films"));
+    }
+}
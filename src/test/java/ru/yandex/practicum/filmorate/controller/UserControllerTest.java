@@ -1,139 +1,139 @@
-//package ru.yandex.practicum.filmorate.controller;
-//
-//import jakarta.validation.ConstraintViolation;
-//import jakarta.validation.Validation;
-//import jakarta.validation.Validator;
-//import jakarta.validation.ValidatorFactory;
-//import org.junit.jupiter.api.BeforeEach;
-//import org.junit.jupiter.api.Test;
-//import ru.yandex.practicum.filmorate.model.User;
-//import ru.yandex.practicum.filmorate.service.UserService;
-//import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
-//
-//import java.time.LocalDate;
-//import java.util.Set;
-//
-//import static org.junit.jupiter.api.Assertions.assertEquals;
-//import static org.junit.jupiter.api.Assertions.assertFalse;
-//
-//public class UserControllerTest {
-//    private UserController controller;
-//    private Validator validator;
-//    private UserStorage userStorage;
-//    private UserService service;
-//
-//    @BeforeEach
-//    public void setUp() {
-//        userStorage = new InMemoryUserStorage();
-//
-//        service = new UserService(userStorage);
-//        controller = new UserController(service);
-//        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-//        validator = factory.getValidator();
-//    }
-//
-//    @Test
-//    public void shouldPassValidation() {
-//        User user = User.builder()
-//                .login("login1")
-//                .name("name1")
-//                .email("mail1@mail.ru")
-//                .birthday(LocalDate.of(1979, 3, 25))
-//                .build();
-//        controller.create(user);
-//        System.out.println(user);
-//
-//        assertEquals(1, controller.getAll().size());
-//    }
-//
-//    @Test
-//    public void shouldNotPassEmailValidation() {
-//
-//        User user1 = User.builder()
-//                .login("login1")
-//                .name("name1")
-//                .email("mail1.ru") // Неверный формат email
-//                .birthday(LocalDate.of(1979, 3, 25))
-//                .build();
-//
-//        User user2 = User.builder()
-//                .login("login2")
-//                .name("name2")
-//                .email("") // Пустая строка
-//                .birthday(LocalDate.of(2003, 6, 8))
-//                .build();
-//
-//        Set<ConstraintViolation<User>> violations1 = validator.validate(user1);
-//        assertFalse(violations1.isEmpty(), "Ожидалась ошибка валидации для неверного email");
-//
-//        // Проверяем валидацию для пустого email
-//        Set<ConstraintViolation<User>> violations2 = validator.validate(user2);
-//        assertFalse(violations2.isEmpty(), "Ожидалась ошибка валидации для пустого email");
-//    }
-//
-//    @Test
-//    public void shouldNotPassBirthdayValidation() {
-//        // Дата рождения в будущем
-//        User user = User.builder()
-//                .login("login1")
-//                .name("name1")
-//                .email("mail1@mail.ru")
-//                .birthday(LocalDate.of(2056, 1, 1))
-//                .build();
-//
-//        // Проверяем ошибки валидации для будущей даты рождения
-//        Set<ConstraintViolation<User>> violations = validator.validate(user);
-//        assertFalse(violations.isEmpty(), "Ожидалась ошибка валидации для будущей даты рождения");
-//    }
-//
-//    @Test
-//    public void shouldNotPassLoginValidation() {
-//        // Логин с пробелами
-//        User user = User.builder()
-//                .login("invalid login")
-//                .name("name1")
-//                .email("mail1@mail.ru")
-//                .birthday(LocalDate.of(1990, 5, 15))
-//                .build();
-//
-//        // Проверяем ошибки валидации для логина с пробелами
-//        Set<ConstraintViolation<User>> violations = validator.validate(user);
-//        assertFalse(violations.isEmpty(), "Ожидалась ошибка валидации для логина с пробелами");
-//    }
-//
-//
-//    @Test
-//    public void shouldUpdateUser() {
-//        controller.create(User.builder()
-//                .login("login1")
-//                .name("name1")
-//                .email("mail1@mail.ru")
-//                .birthday(LocalDate.of(2003, 6, 8))
-//                .build());
-//
-//        controller.update(User.builder()
-//                .id(1L)
-//                .login("login2")
-//                .name("name2")
-//                .email("mail2@mail.ru")
-//                .birthday(LocalDate.of(2003, 6, 8))
-//                .build());
-//
-//        assertEquals(1, controller.getAll().size());
-//    }
-//
-//    @Test
-//    public void shouldCreateWithEmptyName() {
-//        User user = User.builder()
-//                .login("login1")
-//                .email("mail1@mail.ru")
-//                .name("")
-//                .birthday(LocalDate.of(2003, 6, 8))
-//                .build();
-//
-//        controller.create(user);
-//
-//        assertEquals("login1", user.getName());
-//    }
-//
-//}
\ No newline at end of file
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.controller.QueryCountMatchers.queryCount;
+import static ru.yandex.practicum.filmorate.controller.QueryCountMatchers.queryCountOf;
+
+/**
+ * Проверки пользователей через HTTP: валидация и число SQL-запросов на каждый маршрут. Контекст общий для
+ * всех тестов, поэтому каждый тест создаёт своих пользователей и не рассчитывает на их точное количество.
+ */
+@SpringBootTest(properties = "filmorate.sql.query-count-header=true")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class UserControllerTest {
+    static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void shouldPassValidation() throws Exception {
+        mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(user("login1", "mail1@mail.ru", "1979-03-25"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldNotPassEmailValidation() throws Exception {
+        mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(user("login1", "mail1.ru", "1979-03-25"))))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(user("login2", "", "2003-06-08"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldNotPassBirthdayValidation() throws Exception {
+        mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(user("login1", "mail1@mail.ru", "2056-01-01"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldNotPassLoginValidation() throws Exception {
+        mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(user("invalid login", "mail1@mail.ru", "1990-05-15"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldCreateWithEmptyName() throws Exception {
+        Map<String, Object> user = user("login1", "mail1@mail.ru", "2003-06-08");
+        user.put("name", "");
+        mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(json(user)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(user.get("login")));
+    }
+
+    @Test
+    public void userRoutesQueryCount() throws Exception {
+        long userId = createUser();
+        long friendId = createUser();
+        long otherId = createUser();
+
+        mvc.perform(put("/users/" + userId + "/friends/" + friendId)).andExpect(status().isOk())
+                .andExpect(queryCount(2));
+        mvc.perform(put("/users/" + otherId + "/friends/" + friendId)).andExpect(status().isOk());
+        mvc.perform(get("/users/" + userId)).andExpect(status().isOk()).andExpect(queryCount(2));
+        mvc.perform(get("/users/" + userId + "/friends")).andExpect(status().isOk()).andExpect(queryCount(2));
+        mvc.perform(get("/users/" + userId + "/friends/common/" + otherId)).andExpect(status().isOk())
+                .andExpect(queryCount(2));
+        mvc.perform(get("/users/" + userId + "/suggestions")).andExpect(status().isOk()).andExpect(queryCount(1));
+        mvc.perform(get("/users/" + userId + "/recommendations")).andExpect(status().isOk())
+                .andExpect(queryCount(1));
+        mvc.perform(get("/users?limit=10")).andExpect(status().isOk()).andExpect(queryCount(2));
+        mvc.perform(get("/users/100000")).andExpect(status().isNotFound()).andExpect(queryCount(1));
+    }
+
+    @Test
+    public void getAllQueryCountDoesNotDependOnUsersCount() throws Exception {
+        createUser();
+        int before = queryCountOf(mvc.perform(get("/users")).andExpect(status().isOk()).andReturn());
+        long userId = createUser();
+        for (int i = 0; i < 5; i++) {
+            long friendId = createUser();
+            mvc.perform(put("/users/" + userId + "/friends/" + friendId)).andExpect(status().isOk());
+        }
+
+        mvc.perform(get("/users")).andExpect(status().isOk()).andExpect(queryCount(before));
+        mvc.perform(get("/users/" + userId + "/friends")).andExpect(status().isOk()).andExpect(queryCount(2));
+    }
+
+    private long createUser() throws Exception {
+        MvcResult result = mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(json(user("login", "mail@mail.ru", "2000-08-19"))))
+                .andExpect(status().isOk())
+                .andExpect(queryCount(1))
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    /**
+     * Логин и email в базе уникальны, поэтому к корректным значениям добавляется номер пользователя.
+     */
+    private static Map<String, Object> user(String login, String email, String birthday) {
+        int number = USERS.incrementAndGet();
+        Map<String, Object> user = new HashMap<>();
+        user.put("login", login.isBlank() || login.contains(" ") ? login : login + number);
+        user.put("name", "name");
+        user.put("email", email.contains("@") ? number + email : email);
+        user.put("birthday", birthday);
+        return user;
+    }
+
+    private String json(Object value) throws Exception {
+        return objectMapper.writeValueAsString(value);
+    }
+}
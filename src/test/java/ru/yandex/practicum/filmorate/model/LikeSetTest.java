@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LikeSetTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void builderSortsAndRemovesDuplicatesTest() {
+        LikeSet likes = LikeSet.builder(2).add(5).add(1).add(5).add(3).build();
+
+        assertEquals(3, likes.size());
+        assertEquals(Set.of(1L, 3L, 5L), likes);
+        assertTrue(likes.contains(3L));
+        assertFalse(likes.contains(4L));
+        assertEquals(LikeSet.empty(), LikeSet.builder().build());
+    }
+
+    @Test
+    void jsonIsArrayOfIdsTest() throws Exception {
+        Film film = Film.builder().likes(LikeSet.of(2, 1)).build();
+
+        String json = objectMapper.writeValueAsString(film.getLikes());
+        Film parsed = objectMapper.readValue("{\"likes\":[3,1,3]}", Film.class);
+
+        assertEquals("[1,2]", json);
+        assertEquals(LikeSet.of(1, 3), parsed.getLikes());
+    }
+}
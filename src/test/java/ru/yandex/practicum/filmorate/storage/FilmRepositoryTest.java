@@ -8,36 +8,80 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.StatementCounter;
+import ru.yandex.practicum.filmorate.dal.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.dal.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmHydrator;
 import ru.yandex.practicum.filmorate.dal.storage.film.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dal.storage.film.LikeMatrix;
+import ru.yandex.practicum.filmorate.dal.storage.film.FilmTitleTrie;
+import ru.yandex.practicum.filmorate.dal.storage.film.PopularFilmsLeaderboard;
 import ru.yandex.practicum.filmorate.dal.storage.genre.GenreRepository;
 import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaRepository;
+import ru.yandex.practicum.filmorate.dal.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.dal.storage.user.FriendshipGraph;
 import ru.yandex.practicum.filmorate.dal.storage.user.UserRepository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmLikeResult;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@JdbcTest
+@JdbcTest(properties = "filmorate.sql.query-count-header=true")
 @AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmRepository.class, UserRepository.class, MpaRepository.class, GenreRepository.class})
+@Import({FilmRepository.class, UserRepository.class, FriendshipGraph.class, MpaRepository.class,
+        GenreRepository.class, FilmHydrator.class, ReferenceDataCache.class, PopularFilmsLeaderboard.class,
+        FilmSimilarityIndex.class, FilmSearchIndex.class, FilmTitleTrie.class,
+        EntityVersions.class, FilmCache.class, QueryMetrics.class, StatementCounter.class})
 @ContextConfiguration(classes = {FilmorateApplication.class})
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class FilmRepositoryTest {
     FilmRepository filmDbRepository;
     UserRepository userDbRepository;
     MpaRepository mpaDbRepository;
+    PopularFilmsLeaderboard leaderboard;
+    FilmSimilarityIndex similarityIndex;
+    FilmCache filmCache;
+    QueryMetrics queryMetrics;
+    StatementCounter statements;
+    JdbcTemplate jdbcTemplate;
 
     @Test
     void createTest() {
@@ -106,6 +150,38 @@ public class FilmRepositoryTest {
         assertEquals(collection.get(1), film2, "Ошибка при возвращении film2");
     }
 
+    @Test
+    void createAllTest() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Film film = createFilm();
+            film.setGenres(List.of(new Genre(2, null), new Genre(1, null), new Genre(2, null)));
+            films.add(film);
+        }
+        films.getLast().setGenres(new ArrayList<>());
+
+        statements.start();
+        List<Film> created = filmDbRepository.createAll(films);
+
+        assertEquals(2, statements.getCount(), "Пакетная вставка должна занимать два запроса");
+        assertEquals(5, created.stream().map(Film::getId).distinct().count());
+        for (Film film : created) {
+            assertEquals(film.getGenres(), filmDbRepository.getById(film.getId()).getGenres());
+            assertEquals(mpaDbRepository.getRatingById(3).getName(), film.getMpa().getName());
+        }
+        assertEquals(List.of(1, 2), created.getFirst().getGenres().stream().map(Genre::getId).toList());
+        assertTrue(created.getLast().getGenres().isEmpty());
+    }
+
+    @Test
+    void createAllChecksReferencesBeforeInsertTest() {
+        Film film = createFilm();
+        film.setGenres(List.of(new Genre(100, null)));
+
+        assertThrows(NotFoundException.class, () -> filmDbRepository.createAll(List.of(createFilm(), film)));
+        assertTrue(filmDbRepository.getFilms().isEmpty());
+    }
+
     @Test
     void updateTest() {
         Film film = filmDbRepository.create(createFilm());
@@ -220,10 +296,708 @@ public class FilmRepositoryTest {
         filmDbRepository.addLike(film2.getId(), user2.getId());
         filmDbRepository.addLike(film2.getId(), user1.getId());
 
-        List<Film> popularFilms = (List<Film>) filmDbRepository.getPopularFilms(2);
+        List<Film> popularFilms = (List<Film>) filmDbRepository.getPopularFilms(2, null, null);
 
         assertEquals(popularFilms.size(), 2, "Неверное количество фильмов");
         assertEquals(popularFilms.get(0), film2);
         assertEquals(popularFilms.get(1), film);
     }
+
+    @Test
+    void getPopularFilmsByGenreAndYearTest() {
+        Film comedy = createFilm();
+        comedy.setGenres(List.of(new Genre(1, "Комедия")));
+        comedy = filmDbRepository.create(comedy);
+        Film drama = createFilm();
+        drama.setGenres(List.of(new Genre(2, "Драма")));
+        drama.setReleaseDate(LocalDate.of(2005, 1, 1));
+        drama = filmDbRepository.create(drama);
+        Film comedyDrama = createFilm();
+        comedyDrama.setGenres(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+        comedyDrama = filmDbRepository.create(comedyDrama);
+        User user1 = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user2 = userDbRepository.create(User.builder()
+                .login("SomeLogin2")
+                .name("SomeName2")
+                .email("test2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        filmDbRepository.addLike(comedy.getId(), user1.getId());
+        filmDbRepository.addLike(drama.getId(), user1.getId());
+        filmDbRepository.addLike(drama.getId(), user2.getId());
+        filmDbRepository.addLike(comedyDrama.getId(), user2.getId());
+
+        assertEquals(List.of(drama.getId(), comedyDrama.getId()), popularIds(10, 2, null));
+        assertEquals(List.of(comedy.getId(), comedyDrama.getId()), popularIds(10, null, 1999));
+        assertEquals(List.of(comedyDrama.getId()), popularIds(10, 2, 1999));
+        assertEquals(List.of(), popularIds(10, 3, null));
+        assertTrue(leaderboard.isConsistentWithDatabase(10, 2, null), "Рейтинг по жанру расходится с базой");
+        assertTrue(leaderboard.isConsistentWithDatabase(10, 1, 1999), "Рейтинг по жанру и году расходится с базой");
+
+        drama.setGenres(List.of(new Genre(1, "Комедия")));
+        filmDbRepository.update(drama);
+
+        assertEquals(List.of(drama.getId(), comedy.getId(), comedyDrama.getId()), popularIds(10, 1, null));
+        assertEquals(List.of(comedyDrama.getId()), popularIds(10, 2, null));
+
+        leaderboard.rebuild();
+
+        assertEquals(List.of(drama.getId(), comedy.getId(), comedyDrama.getId()), popularIds(10, 1, null));
+        assertEquals(List.of(drama.getId()), popularIds(10, null, 2005));
+    }
+
+    private List<Long> popularIds(int count, Integer genreId, Integer year) {
+        return filmDbRepository.getPopularFilms(count, genreId, year).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    @Test
+    void searchFilmsTest() {
+        Film matrix = createFilm();
+        matrix.setName("Матрица");
+        matrix.setDescription("Хакер узнаёт правду о мире");
+        matrix = filmDbRepository.create(matrix);
+        Film tree = createFilm();
+        tree.setName("Ёлки");
+        tree.setDescription("Новогодняя комедия о матрице случайностей");
+        tree = filmDbRepository.create(tree);
+        Film other = filmDbRepository.create(createFilm());
+
+        assertEquals(List.of(matrix.getId(), tree.getId()), searchIds("МАТРИЦЫ"));
+        assertEquals(List.of(tree.getId()), searchIds("елка"));
+        assertEquals(List.of(tree.getId()), searchIds("матрица комедии"));
+        assertEquals(List.of(), searchIds("матрица боевик"));
+        assertEquals(List.of(), searchIds("  ,. "));
+
+        matrix.setName("Начало");
+        filmDbRepository.update(matrix);
+        other.setName("Матрица: Перезагрузка");
+        filmDbRepository.update(other);
+        filmDbRepository.delete(tree.getId());
+
+        assertEquals(List.of(other.getId()), searchIds("матрица"));
+        assertEquals(List.of(matrix.getId()), searchIds("начало"));
+    }
+
+    @Test
+    void rolledBackUpdateKeepsIndexesTest() {
+        Film matrix = createFilm();
+        matrix.setName("Матрица");
+        matrix = filmDbRepository.create(matrix);
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        filmDbRepository.addLike(matrix.getId(), user.getId());
+
+        Film changed = createFilm();
+        changed.setId(matrix.getId());
+        changed.setName("Начало");
+        changed.setReleaseDate(LocalDate.of(2010, 7, 8));
+        changed.setLikes(LikeSet.of(user.getId()));
+        assertThrows(DataIntegrityViolationException.class, () -> filmDbRepository.update(changed),
+                "Повторный лайк должен откатить изменение фильма");
+
+        assertEquals("Матрица", filmDbRepository.getById(matrix.getId()).getName());
+        assertEquals(List.of(matrix.getId()), searchIds("матрица"), "Поиск потерял название после отката");
+        assertEquals(List.of(), searchIds("начало"), "Поиск нашёл название из отменённого изменения");
+        assertEquals(List.of(matrix.getId()), autocompleteIds("мат", 10));
+        assertEquals(List.of(), autocompleteIds("нач", 10));
+        assertEquals(List.of(matrix.getId()), leaderboard.getTop(10, null, 1999));
+        assertEquals(List.of(), leaderboard.getTop(10, null, 2010));
+        assertEquals(1, leaderboard.getLikes(matrix.getId()));
+    }
+
+    private List<Long> searchIds(String query) {
+        return filmDbRepository.searchFilms(query, 10).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    @Test
+    void autocompleteTest() {
+        Film matrix = createFilm();
+        matrix.setName("Матрица");
+        matrix = filmDbRepository.create(matrix);
+        Film reloaded = createFilm();
+        reloaded.setName("Матрица: Перезагрузка");
+        reloaded = filmDbRepository.create(reloaded);
+        Film mask = createFilm();
+        mask.setName("Маска");
+        mask = filmDbRepository.create(mask);
+        Film tree = createFilm();
+        tree.setName("Ёлки");
+        tree = filmDbRepository.create(tree);
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        filmDbRepository.addLike(reloaded.getId(), user.getId());
+
+        assertEquals(List.of(reloaded.getId(), matrix.getId(), mask.getId()), autocompleteIds("ма", 10));
+        assertEquals(List.of(reloaded.getId(), matrix.getId()), autocompleteIds("МАТР", 10));
+        assertEquals(List.of(reloaded.getId()), autocompleteIds("ма", 1));
+        assertEquals(List.of(tree.getId()), autocompleteIds("ел", 10));
+        assertEquals(List.of(mask.getId()), autocompleteIds("мас", 10));
+        assertEquals(List.of(), autocompleteIds("мах", 10));
+
+        mask.setName("Матрос");
+        filmDbRepository.update(mask);
+        filmDbRepository.delete(matrix.getId());
+        filmDbRepository.removeLike(reloaded.getId(), user.getId());
+
+        assertEquals(List.of(reloaded.getId(), mask.getId()), autocompleteIds("мат", 10));
+        assertEquals(List.of(mask.getId()), autocompleteIds("матро", 10));
+    }
+
+    private List<Long> autocompleteIds(String prefix, int limit) {
+        return filmDbRepository.autocomplete(prefix, limit).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    @Test
+    void versionTagFollowsChangesTest() {
+        Film film = filmDbRepository.create(createFilm());
+        Film other = filmDbRepository.create(createFilm());
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        String otherTag = filmDbRepository.getVersionTag(other.getId());
+        List<String> tags = new ArrayList<>();
+        tags.add(filmDbRepository.getVersionTag(film.getId()));
+
+        filmDbRepository.getById(film.getId());
+        assertEquals(tags.getLast(), filmDbRepository.getVersionTag(film.getId()), "Чтение изменило версию");
+
+        filmDbRepository.addLike(film.getId(), user.getId());
+        tags.add(filmDbRepository.getVersionTag(film.getId()));
+        filmDbRepository.removeLike(film.getId(), user.getId());
+        tags.add(filmDbRepository.getVersionTag(film.getId()));
+        filmDbRepository.addLikes(List.of(new FilmLike(film.getId(), user.getId())));
+        tags.add(filmDbRepository.getVersionTag(film.getId()));
+        film.setGenres(List.of(new Genre(1, "Комедия")));
+        filmDbRepository.update(film);
+        tags.add(filmDbRepository.getVersionTag(film.getId()));
+        filmDbRepository.delete(other.getId());
+
+        assertEquals(tags.size(), Set.copyOf(tags).size(), "Изменение фильма не изменило версию");
+        assertNotEquals(otherTag, filmDbRepository.getVersionTag(other.getId()), "Удаление не изменило версию");
+    }
+
+    @Test
+    void getByIdCacheFollowsChangesTest() {
+        Film film = filmDbRepository.create(createFilm());
+        Film other = filmDbRepository.create(createFilm());
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        filmDbRepository.getById(film.getId()).setName("changed");
+
+        statements.start();
+        assertEquals("name", filmDbRepository.getById(film.getId()).getName(), "Кэш отдал изменённую копию");
+        assertEquals(0, statements.getCount(), "Повторное чтение фильма должно обходиться без запросов");
+
+        filmDbRepository.addLike(film.getId(), user.getId());
+        assertEquals(Set.of(user.getId()), filmDbRepository.getById(film.getId()).getLikes());
+        filmDbRepository.removeLike(film.getId(), user.getId());
+        assertEquals(0, filmDbRepository.getById(film.getId()).getLikeCount());
+        filmDbRepository.addLikes(List.of(new FilmLike(film.getId(), user.getId())));
+        assertEquals(1, filmDbRepository.getById(film.getId()).getLikeCount());
+        film.setGenres(List.of(new Genre(1, "Комедия")));
+        filmDbRepository.update(film);
+        assertEquals(List.of(1), filmDbRepository.getById(film.getId()).getGenres().stream()
+                .map(Genre::getId).toList());
+        Film copy = filmDbRepository.getById(film.getId());
+        copy.getMpa().setName("changed");
+        copy.getGenres().get(0).setName("changed");
+        assertEquals(mpaDbRepository.getRatingById(3).getName(),
+                filmDbRepository.getById(film.getId()).getMpa().getName(), "Кэш отдал общий рейтинг");
+        assertEquals("Комедия", filmDbRepository.getById(film.getId()).getGenres().get(0).getName(),
+                "Кэш отдал общий жанр");
+        filmDbRepository.getById(other.getId());
+        filmDbRepository.delete(other.getId());
+        assertThrows(NotFoundException.class, () -> filmDbRepository.getById(other.getId()));
+    }
+
+    @Test
+    void filmCacheLoadsColdKeyOnceTest() throws Exception {
+        Film film = filmDbRepository.create(createFilm());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Film> first = CompletableFuture.supplyAsync(() -> filmCache.get(film.getId(), id -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return film;
+        }));
+        started.await();
+        // Остальные читатели должны застрять внутри filmCache.get на идущей загрузке до того, как она закончится
+        int readers = 4;
+        Queue<Thread> waiting = new ConcurrentLinkedQueue<>();
+        CountDownLatch entering = new CountDownLatch(readers);
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        List<Future<Film>> others = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            others.add(pool.submit(() -> {
+                waiting.add(Thread.currentThread());
+                entering.countDown();
+                return filmCache.get(film.getId(), id -> {
+                    loads.incrementAndGet();
+                    return film;
+                });
+            }));
+        }
+        entering.await();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!waiting.stream().allMatch(thread -> thread.getState() == Thread.State.BLOCKED
+                || thread.getState() == Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() < deadline, "Читатели не дождались загрузки внутри filmCache.get");
+            Thread.onSpinWait();
+        }
+        assertEquals(1, loads.get(), "Читатели не должны запускать свою загрузку");
+        release.countDown();
+
+        assertEquals(film.getId(), first.get().getId());
+        for (Future<Film> other : others) {
+            assertEquals(film.getId(), other.get().getId());
+        }
+        pool.shutdown();
+        assertEquals(1, loads.get(), "Фильм загружен больше одного раза");
+        assertEquals(1, filmCache.getStats().missCount());
+    }
+
+    @Test
+    void addLikeChecksExistenceWithSingleQueryTest() {
+        Film film = filmDbRepository.create(createFilm());
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+
+        long probes = queryMetrics.getTimer("film.checkFilmAndUser").count();
+        statements.start();
+        filmDbRepository.addLike(film.getId(), user.getId());
+
+        assertEquals(probes + 1, queryMetrics.getTimer("film.checkFilmAndUser").count(),
+                "Проверка существования должна занимать один запрос");
+        assertEquals(3, statements.getCount(), "Лайк: проверка, вставка и счётчик лайков");
+        statements.start();
+        assertThrows(NotFoundException.class, () -> filmDbRepository.addLike(film.getId(), 100L));
+        assertEquals(1, statements.getCount(), "Лайк несуществующего пользователя стоит одну проверку");
+        assertThrows(NotFoundException.class, () -> filmDbRepository.addLike(100L, user.getId()));
+        assertThrows(NotFoundException.class, () -> filmDbRepository.removeLike(100L, user.getId()));
+    }
+
+    @Test
+    void addLikesTest() {
+        Film film = filmDbRepository.create(createFilm());
+        Film other = filmDbRepository.create(createFilm());
+        User first = userDbRepository.create(User.builder()
+                .login("FirstLogin")
+                .name("FirstName")
+                .email("first@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User second = userDbRepository.create(User.builder()
+                .login("SecondLogin")
+                .name("SecondName")
+                .email("second@mail.ru")
+                .birthday(LocalDate.of(2001, 8, 19))
+                .build());
+        filmDbRepository.addLike(film.getId(), first.getId());
+
+        statements.start();
+        List<FilmLikeResult> results = filmDbRepository.addLikes(List.of(
+                new FilmLike(film.getId(), first.getId()),
+                new FilmLike(film.getId(), second.getId()),
+                new FilmLike(other.getId(), second.getId()),
+                new FilmLike(other.getId(), second.getId()),
+                new FilmLike(100L, first.getId()),
+                new FilmLike(film.getId(), 100L)));
+
+        assertEquals(List.of(FilmLikeResult.Status.DUPLICATE, FilmLikeResult.Status.CREATED,
+                        FilmLikeResult.Status.CREATED, FilmLikeResult.Status.DUPLICATE,
+                        FilmLikeResult.Status.FILM_NOT_FOUND, FilmLikeResult.Status.USER_NOT_FOUND),
+                results.stream().map(FilmLikeResult::getStatus).toList());
+        assertEquals(5, statements.getCount(), "Количество запросов не должно зависеть от размера пакета");
+        assertEquals(Set.of(first.getId(), second.getId()), filmDbRepository.getById(film.getId()).getLikes());
+        assertEquals(2, filmDbRepository.getById(film.getId()).getLikeCount());
+        assertEquals(1, filmDbRepository.getById(other.getId()).getLikeCount());
+        assertEquals(List.of(film.getId(), other.getId()), leaderboard.getTop(10));
+    }
+
+    @Test
+    void addLikesTakesLeaderboardCountFromLikesTest() {
+        Film film = filmDbRepository.create(createFilm());
+        User first = userDbRepository.create(User.builder()
+                .login("FirstLogin")
+                .name("FirstName")
+                .email("first@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User second = userDbRepository.create(User.builder()
+                .login("SecondLogin")
+                .name("SecondName")
+                .email("second@mail.ru")
+                .birthday(LocalDate.of(2001, 8, 19))
+                .build());
+        // Лайк из базы, обновлённой без пересчёта счётчиков: like_count остался нулевым
+        jdbcTemplate.update("INSERT INTO film_like (film_id, user_id) VALUES (?, ?)", film.getId(), first.getId());
+        leaderboard.rebuild();
+
+        filmDbRepository.addLikes(List.of(new FilmLike(film.getId(), second.getId())));
+
+        assertEquals(2, leaderboard.getLikes(film.getId()), "Рейтинг должен брать число лайков из film_like");
+        assertEquals(1, filmDbRepository.getById(film.getId()).getLikeCount(),
+                "Счётчик увеличивается только на вставленные лайки");
+    }
+
+    @Test
+    void likeCountFollowsLikesTest() {
+        Film film = filmDbRepository.create(createFilm());
+        User user1 = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user2 = userDbRepository.create(User.builder()
+                .login("SomeLogin2")
+                .name("SomeName2")
+                .email("test2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+
+        filmDbRepository.addLike(film.getId(), user1.getId());
+        filmDbRepository.addLike(film.getId(), user2.getId());
+        filmDbRepository.removeLike(film.getId(), user1.getId());
+
+        assertEquals(1, filmDbRepository.getById(film.getId()).getLikeCount());
+        assertEquals(1, filmDbRepository.getFilms().get(0).getLikeCount());
+        assertEquals(0, filmDbRepository.repairLikeCounts(), "Счётчик лайков разошёлся с таблицей лайков");
+    }
+
+    @Test
+    void repairLikeCountsTest() {
+        Film film = filmDbRepository.create(createFilm());
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        filmDbRepository.addLike(film.getId(), user.getId());
+        jdbcTemplate.update("UPDATE film SET like_count = 5 WHERE id = ?", film.getId());
+
+        assertEquals(1, filmDbRepository.repairLikeCounts(), "Неверное количество исправленных фильмов");
+        assertEquals(1, filmDbRepository.getById(film.getId()).getLikeCount());
+    }
+
+    @Test
+    void leaderboardFollowsLikesTest() {
+        Film film1 = filmDbRepository.create(createFilm());
+        Film film2 = filmDbRepository.create(createFilm());
+        Film film3 = filmDbRepository.create(createFilm());
+        User user1 = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user2 = userDbRepository.create(User.builder()
+                .login("SomeLogin2")
+                .name("SomeName2")
+                .email("test2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+
+        filmDbRepository.addLike(film3.getId(), user1.getId());
+        filmDbRepository.addLike(film3.getId(), user2.getId());
+        filmDbRepository.addLike(film1.getId(), user1.getId());
+        filmDbRepository.addLike(film2.getId(), user2.getId());
+        filmDbRepository.removeLike(film3.getId(), user1.getId());
+
+        assertEquals(List.of(film1.getId(), film2.getId(), film3.getId()), leaderboard.getTop(10));
+        assertTrue(leaderboard.isConsistentWithDatabase(10), "Рейтинг расходится с базой");
+
+        filmDbRepository.removeLike(film1.getId(), user1.getId());
+
+        assertEquals(List.of(film2.getId(), film3.getId()), leaderboard.getTop(10));
+        assertTrue(leaderboard.isConsistentWithDatabase(10), "Рейтинг расходится с базой");
+
+        leaderboard.rebuild();
+
+        assertEquals(List.of(film2.getId(), film3.getId()), leaderboard.getTop(10));
+    }
+
+    @Test
+    void getRecommendationsTest() {
+        Film film1 = filmDbRepository.create(createFilm());
+        Film film2 = filmDbRepository.create(createFilm());
+        Film film3 = filmDbRepository.create(createFilm());
+        Film film4 = filmDbRepository.create(createFilm());
+        User user1 = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user2 = userDbRepository.create(User.builder()
+                .login("SomeLogin2")
+                .name("SomeName2")
+                .email("test2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user3 = userDbRepository.create(User.builder()
+                .login("SomeLogin3")
+                .name("SomeName3")
+                .email("test3@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        filmDbRepository.addLike(film1.getId(), user1.getId());
+        filmDbRepository.addLike(film2.getId(), user1.getId());
+        filmDbRepository.addLike(film1.getId(), user2.getId());
+        filmDbRepository.addLike(film2.getId(), user2.getId());
+        filmDbRepository.addLike(film3.getId(), user2.getId());
+        filmDbRepository.addLike(film4.getId(), user3.getId());
+        similarityIndex.rebuild();
+
+        assertEquals(List.of(film3.getId()), filmDbRepository.getRecommendations(user1.getId(), 10).stream()
+                .map(Film::getId)
+                .toList());
+        assertEquals(List.of(), filmDbRepository.getRecommendations(user2.getId(), 10));
+        assertThrows(NotFoundException.class, () -> filmDbRepository.getRecommendations(100L, 10));
+
+        filmDbRepository.removeLike(film3.getId(), user2.getId());
+
+        assertEquals(List.of(), filmDbRepository.getRecommendations(user1.getId(), 10),
+                "Удалённый лайк остался в индексе похожих фильмов");
+
+        filmDbRepository.addLike(film3.getId(), user2.getId());
+
+        assertEquals(List.of(film3.getId()), filmDbRepository.getRecommendations(user1.getId(), 10).stream()
+                .map(Film::getId)
+                .toList());
+    }
+
+    @Test
+    void recommendationsFollowNewFilmsWithoutRebuildTest() {
+        Film film1 = filmDbRepository.create(createFilm());
+        User user1 = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user2 = userDbRepository.create(User.builder()
+                .login("SomeLogin2")
+                .name("SomeName2")
+                .email("test2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        similarityIndex.rebuild();
+        Film film2 = filmDbRepository.create(createFilm());
+        Film film3 = filmDbRepository.create(createFilm());
+
+        filmDbRepository.addLike(film1.getId(), user1.getId());
+        filmDbRepository.addLike(film2.getId(), user1.getId());
+        filmDbRepository.addLikes(List.of(new FilmLike(film2.getId(), user2.getId()),
+                new FilmLike(film3.getId(), user2.getId())));
+
+        assertEquals(List.of(film3.getId()), filmDbRepository.getRecommendations(user1.getId(), 10).stream()
+                .map(Film::getId)
+                .toList(), "Новые пары должны попадать в индекс без перестройки");
+        assertEquals(List.of(film1.getId()), filmDbRepository.getRecommendations(user2.getId(), 10).stream()
+                .map(Film::getId)
+                .toList());
+    }
+
+    @Test
+    void likeSeenByRebuildIsNotReplayedTwiceTest() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            films.add(filmDbRepository.create(createFilm()));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(userDbRepository.create(User.builder()
+                    .login("Login" + i)
+                    .name("Name" + i)
+                    .email("email" + i + "@mail.ru")
+                    .birthday(LocalDate.of(2000, 8, 19))
+                    .build()));
+        }
+        long first = films.get(0).getId();
+        long second = films.get(1).getId();
+        long third = films.get(2).getId();
+        filmDbRepository.addLike(first, users.get(0).getId());
+        filmDbRepository.addLike(first, users.get(1).getId());
+        filmDbRepository.addLike(third, users.get(1).getId());
+        filmDbRepository.addLike(first, users.get(2).getId());
+        filmDbRepository.addLike(third, users.get(2).getId());
+        filmDbRepository.addLike(second, users.get(3).getId());
+        filmDbRepository.addLike(first, users.get(4).getId());
+
+        // Лайк фиксируется, когда перестройка уже началась, и попадает и в прочитанные данные, и в повтор
+        similarityIndex.rebuild(() -> {
+            filmDbRepository.addLike(second, users.get(0).getId());
+            LikeMatrix.Builder builder = LikeMatrix.builder();
+            jdbcTemplate.query("SELECT user_id, film_id FROM film_like",
+                    rs -> {
+                        builder.add(rs.getLong("user_id"), rs.getLong("film_id"));
+                    });
+            return builder.build();
+        });
+
+        // У второго и третьего фильма по два лайка, с первым второй лайкнули вместе один раз, третий — два
+        assertEquals(List.of(third, second), filmDbRepository.getRecommendations(users.get(4).getId(), 10).stream()
+                .map(Film::getId)
+                .toList(), "Лайк, пришедший во время перестройки, учтён дважды");
+    }
+
+    @Test
+    void getFilmsQueryCountDoesNotDependOnFilmsCount() {
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        createLikedFilmsWithGenres(3, user);
+        statements.start();
+        filmDbRepository.getFilms();
+        int smallCatalogQueries = statements.getCount();
+
+        createLikedFilmsWithGenres(30, user);
+        statements.start();
+        List<Film> films = filmDbRepository.getFilms();
+        int largeCatalogQueries = statements.getCount();
+
+        assertEquals(33, films.size(), "Неверное количество фильмов");
+        assertEquals(smallCatalogQueries, largeCatalogQueries, "Количество запросов зависит от числа фильмов");
+        assertEquals(3, largeCatalogQueries, "Неверное количество запросов");
+        assertEquals(Set.of(user.getId()), films.get(32).getLikes());
+        assertEquals(2, films.get(32).getGenres().size());
+        assertEquals("PG-13", films.get(32).getMpa().getName());
+
+        statements.start();
+        filmDbRepository.getAll();
+        assertEquals(largeCatalogQueries, statements.getCount(), "Количество запросов зависит от числа фильмов");
+    }
+
+    @Test
+    void getPopularFilmsQueryCountDoesNotDependOnCount() {
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        createLikedFilmsWithGenres(30, user);
+
+        statements.start();
+        filmDbRepository.getPopularFilms(2, null, null);
+        int fewFilmsQueries = statements.getCount();
+        statements.start();
+        Collection<Film> popularFilms = filmDbRepository.getPopularFilms(30, null, null);
+
+        assertEquals(30, popularFilms.size(), "Неверное количество фильмов");
+        assertEquals(fewFilmsQueries, statements.getCount(), "Количество запросов зависит от числа фильмов");
+    }
+
+    @Test
+    void getFilmsPageTest() {
+        Film film1 = filmDbRepository.create(createFilm());
+        Film film2 = filmDbRepository.create(createFilm());
+        Film film3 = filmDbRepository.create(createFilm());
+
+        List<Film> firstPage = filmDbRepository.getFilmsPage(0, 2);
+        List<Film> secondPage = filmDbRepository.getFilmsPage(firstPage.get(1).getId(), 2);
+
+        assertEquals(List.of(film1, film2), firstPage, "Первая страница возвращается неверно");
+        assertEquals(List.of(film3), secondPage, "Вторая страница возвращается неверно");
+        assertTrue(filmDbRepository.getFilmsPage(film3.getId(), 2).isEmpty());
+    }
+
+    @Test
+    void forEachFilmTest() {
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        createLikedFilmsWithGenres(2, user);
+        Film filmWithoutLikes = filmDbRepository.create(createFilm());
+        List<Film> exported = new ArrayList<>();
+
+        statements.start();
+        filmDbRepository.forEachFilm(1, exported::add);
+
+        assertEquals(3, exported.size(), "Неверное количество фильмов");
+        assertEquals(1, statements.getCount(), "Количество запросов зависит от числа фильмов");
+        assertEquals(Set.of(user.getId()), exported.get(0).getLikes());
+        assertEquals(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")), exported.get(0).getGenres());
+        assertEquals("PG-13", exported.get(0).getMpa().getName());
+        assertEquals(filmWithoutLikes, exported.get(2));
+        assertTrue(exported.get(2).getLikes().isEmpty());
+        assertTrue(exported.get(2).getGenres().isEmpty());
+    }
+
+    @Test
+    void queryMetricsRecordTimeAndRowsByNameTest() {
+        User user = userDbRepository.create(User.builder()
+                .login("SomeLogin")
+                .name("SomeName")
+                .email("test@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        createLikedFilmsWithGenres(1, user);
+        long filmId = filmDbRepository.getFilms().get(0).getId();
+        filmCache.invalidateAll();
+        long loads = queryMetrics.getTimer("film.getById").count();
+        double genres = queryMetrics.getRowCount("film.getById.genres");
+
+        filmDbRepository.getById(filmId);
+        filmDbRepository.getById(filmId);
+
+        assertEquals(loads + 1, queryMetrics.getTimer("film.getById").count(), "Повторный запрос не из кэша");
+        assertEquals(genres + 2, queryMetrics.getRowCount("film.getById.genres"), "Неверное число строк жанров");
+        assertEquals(1, queryMetrics.getRowCount("film.getById.likes"));
+        assertThrows(NotFoundException.class, () -> filmDbRepository.getById(100L));
+        assertEquals(loads + 2, queryMetrics.getTimer("film.getById").count(), "Пустой результат не учтён");
+    }
+
+    private void createLikedFilmsWithGenres(int count, User user) {
+        for (int i = 0; i < count; i++) {
+            Film film = createFilm();
+            film.setGenres(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+            film = filmDbRepository.create(film);
+            filmDbRepository.addLike(film.getId(), user.getId());
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.StatementCounter;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaRepository;
+import ru.yandex.practicum.filmorate.dal.storage.reference.ReferenceDataCache;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest(properties = "filmorate.sql.query-count-header=true")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({ReferenceDataCache.class, MpaRepository.class, GenreRepository.class, StatementCounter.class})
+@ContextConfiguration(classes = {FilmorateApplication.class})
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReferenceDataCacheTest {
+    ReferenceDataCache referenceData;
+    StatementCounter statements;
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lookupsDoNotQueryDatabase() {
+        statements.start();
+
+        assertThat(referenceData.getRating(3).orElseThrow()).hasFieldOrPropertyWithValue("name", "PG-13");
+        assertThat(referenceData.getGenre(6).orElseThrow()).hasFieldOrPropertyWithValue("name", "Боевик");
+        assertEquals(5, referenceData.getAllRatings().size());
+        assertEquals(6, referenceData.getAllGenres().size());
+
+        assertEquals(0, statements.getCount(), "Справочник обращается к базе");
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        referenceData.getRating(1);
+        referenceData.getGenre(1);
+        assertTrue(referenceData.getRating(100).isEmpty());
+        assertTrue(referenceData.getGenre(-1).isEmpty());
+
+        assertEquals(2, referenceData.getHitCount());
+        assertEquals(2, referenceData.getMissCount());
+    }
+
+    @Test
+    void returnedObjectsDoNotChangeCache() {
+        referenceData.getRating(3).orElseThrow().setName("X");
+        referenceData.getAllGenres().get(0).setName("X");
+
+        assertThat(referenceData.getRating(3).orElseThrow()).hasFieldOrPropertyWithValue("name", "PG-13");
+        assertThat(referenceData.getAllRatings().get(2)).hasFieldOrPropertyWithValue("name", "PG-13");
+        assertThat(referenceData.getAllGenres().get(0)).hasFieldOrPropertyWithValue("name", "Комедия");
+    }
+
+    @Test
+    void refreshPicksUpChangedData() {
+        jdbcTemplate.update("INSERT INTO genre (id, name) VALUES (7, 'Ужасы')");
+        assertTrue(referenceData.getGenre(7).isEmpty());
+
+        referenceData.refresh();
+
+        assertThat(referenceData.getGenre(7).orElseThrow()).hasFieldOrPropertyWithValue("name", "Ужасы");
+        assertEquals(7, referenceData.getAllGenres().size());
+    }
+}
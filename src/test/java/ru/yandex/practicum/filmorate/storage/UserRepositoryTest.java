@@ -10,28 +10,47 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dal.StatementCounter;
+import ru.yandex.practicum.filmorate.dal.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.dal.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.dal.storage.user.FriendshipGraph;
 import ru.yandex.practicum.filmorate.dal.storage.user.UserRepository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@JdbcTest
+@JdbcTest(properties = "filmorate.sql.query-count-header=true")
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserRepository.class})
+@Import({UserRepository.class, FriendshipGraph.class, EntityVersions.class, QueryMetrics.class,
+        StatementCounter.class})
 @ContextConfiguration(classes = {FilmorateApplication.class})
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 public class UserRepositoryTest {
     UserRepository userRepository;
+    FriendshipGraph friendshipGraph;
+    StatementCounter statements;
+    PlatformTransactionManager transactionManager;
 
 
     @Test
@@ -109,6 +128,32 @@ public class UserRepositoryTest {
         assertEquals(collection.get(1), user2, "user2 возвращается неверно");
     }
 
+    @Test
+    void getUsersPageTest() {
+        User user1 = userRepository.create(createUser());
+        User user2 = userRepository.create(User.builder()
+                .login("Login2")
+                .name("Name2")
+                .email("email2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        User user3 = userRepository.create(User.builder()
+                .login("Login3")
+                .name("Name3")
+                .email("email3@mail.ru")
+                .birthday(LocalDate.of(2000, 10, 19))
+                .build());
+        userRepository.addFriend(user3.getId(), user1.getId());
+
+        List<User> firstPage = userRepository.getUsersPage(0, 2);
+        List<User> secondPage = userRepository.getUsersPage(firstPage.get(1).getId(), 2);
+
+        assertEquals(List.of(user1, user2), firstPage, "Первая страница возвращается неверно");
+        assertEquals(1, secondPage.size(), "Вторая страница возвращается неверно");
+        assertEquals(user3.getId(), secondPage.get(0).getId(), "Вторая страница возвращается неверно");
+        assertEquals(Set.of(user1.getId()), secondPage.get(0).getFriends());
+    }
+
     @Test
     void updateTest() {
         User user = userRepository.create(createUser());
@@ -164,6 +209,26 @@ public class UserRepositoryTest {
         assertTrue(friends.contains(user2.getId()));
     }
 
+    @Test
+    void addFriendChecksExistenceWithSingleQueryTest() {
+        User user1 = userRepository.create(createUser());
+        User user2 = userRepository.create(User.builder()
+                .login("Login2")
+                .name("Name2")
+                .email("email2@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+
+        statements.start();
+        userRepository.addFriend(user1.getId(), user2.getId());
+
+        assertEquals(2, statements.getCount(), "Проверка существования должна занимать один запрос");
+        assertThrows(NotFoundException.class, () -> userRepository.addFriend(user1.getId(), 100L));
+        assertThrows(NotFoundException.class, () -> userRepository.removeFriend(100L, user1.getId()));
+        assertThrows(NotFoundException.class, () -> userRepository.getMutualFriends(user1.getId(), 100L));
+        assertThrows(NotFoundException.class, () -> userRepository.getAllFriends(100L));
+    }
+
     @Test
     void removeFriendTest() {
         User user1 = userRepository.create(createUser());
@@ -221,6 +286,145 @@ public class UserRepositoryTest {
         assertTrue(friends.contains(user3.getId()));
     }
 
+    @Test
+    void friendshipGraphFollowsFriendshipTableTest() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            users.add(userRepository.create(User.builder()
+                    .login("Login" + i)
+                    .name("Name" + i)
+                    .email("email" + i + "@mail.ru")
+                    .birthday(LocalDate.of(2000, 8, 19))
+                    .build()));
+        }
+        long first = users.get(0).getId();
+        long second = users.get(1).getId();
+        userRepository.addFriend(first, users.get(3).getId());
+        userRepository.addFriend(first, users.get(2).getId());
+        userRepository.addFriend(second, users.get(2).getId());
+        userRepository.addFriend(second, users.get(3).getId());
+
+        statements.start();
+        List<User> mutual = userRepository.getMutualFriends(first, second);
+
+        assertEquals(2, statements.getCount(), "Общие друзья должны находиться без соединения таблиц");
+        assertEquals(List.of(users.get(2).getId(), users.get(3).getId()), mutual.stream().map(User::getId).toList());
+
+        userRepository.removeFriend(first, users.get(2).getId());
+        userRepository.deleteById(users.get(3).getId());
+        assertTrue(userRepository.getMutualFriends(first, second).isEmpty());
+        assertArrayEquals(new long[]{users.get(2).getId()}, friendshipGraph.getFriends(second));
+
+        friendshipGraph.rebuild();
+        assertArrayEquals(new long[]{users.get(2).getId()}, friendshipGraph.getFriends(second));
+        assertEquals(0, friendshipGraph.getFriends(first).length);
+    }
+
+    @Test
+    void rolledBackFriendshipKeepsGraphTest() {
+        User user = userRepository.create(createUser());
+        User friend = userRepository.create(User.builder()
+                .login("FriendLogin")
+                .name("FriendName")
+                .email("friend@mail.ru")
+                .birthday(LocalDate.of(2000, 8, 19))
+                .build());
+        String friendsTag = userRepository.getFriendsVersionTag(user.getId());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.addFriend(user.getId(), friend.getId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, friendshipGraph.getFriends(user.getId()).length, "Граф получил отменённую дружбу");
+        assertEquals(friendsTag, userRepository.getFriendsVersionTag(user.getId()));
+
+        userRepository.addFriend(user.getId(), friend.getId());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.deleteById(friend.getId());
+            status.setRollbackOnly();
+        });
+
+        assertArrayEquals(new long[]{friend.getId()}, friendshipGraph.getFriends(user.getId()),
+                "Граф потерял друга после отменённого удаления");
+    }
+
+    @Test
+    void versionTagsFollowChangesTest() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            ids.add(userRepository.create(User.builder()
+                    .login("Login" + i)
+                    .name("Name" + i)
+                    .email("email" + i + "@mail.ru")
+                    .birthday(LocalDate.of(2000, 8, 19))
+                    .build()).getId());
+        }
+        long user = ids.get(0);
+        long friend = ids.get(1);
+        String userTag = userRepository.getVersionTag(user);
+        String friendTag = userRepository.getVersionTag(friend);
+        String friendsTag = userRepository.getFriendsVersionTag(user);
+
+        userRepository.getById(user);
+        userRepository.getAllFriends(user);
+        assertEquals(userTag, userRepository.getVersionTag(user), "Чтение изменило версию");
+        assertEquals(friendsTag, userRepository.getFriendsVersionTag(user), "Чтение изменило версию");
+
+        userRepository.addFriend(user, friend);
+        assertNotEquals(userTag, userRepository.getVersionTag(user), "Добавление друга не изменило версию");
+        assertEquals(friendTag, userRepository.getVersionTag(friend), "Версия друга изменилась без изменений");
+        friendsTag = assertChanged(friendsTag, userRepository.getFriendsVersionTag(user));
+
+        User changedFriend = userRepository.getById(friend);
+        changedFriend.setName("Renamed");
+        userRepository.update(changedFriend);
+        friendsTag = assertChanged(friendsTag, userRepository.getFriendsVersionTag(user));
+
+        userRepository.addFriend(ids.get(2), user);
+        assertEquals(friendsTag, userRepository.getFriendsVersionTag(user), "Чужая дружба изменила версию");
+
+        userTag = userRepository.getVersionTag(user);
+        userRepository.deleteById(friend);
+        assertChanged(userTag, userRepository.getVersionTag(user));
+        assertChanged(friendsTag, userRepository.getFriendsVersionTag(user));
+    }
+
+    private static String assertChanged(String before, String after) {
+        assertNotEquals(before, after, "Версия не изменилась");
+        return after;
+    }
+
+    @Test
+    void getFriendSuggestionsTest() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            ids.add(userRepository.create(User.builder()
+                    .login("Login" + i)
+                    .name("Name" + i)
+                    .email("email" + i + "@mail.ru")
+                    .birthday(LocalDate.of(2000, 8, 19))
+                    .build()).getId());
+        }
+        long user = ids.get(0);
+        userRepository.addFriend(user, ids.get(1));
+        userRepository.addFriend(user, ids.get(2));
+        userRepository.addFriend(ids.get(1), user);
+        userRepository.addFriend(ids.get(1), ids.get(2));
+        userRepository.addFriend(ids.get(1), ids.get(4));
+        userRepository.addFriend(ids.get(1), ids.get(5));
+        userRepository.addFriend(ids.get(2), ids.get(5));
+        userRepository.addFriend(ids.get(2), ids.get(3));
+
+        List<FriendSuggestion> suggestions = userRepository.getFriendSuggestions(user, 2);
+
+        assertEquals(List.of(ids.get(5), ids.get(3)), suggestions.stream().map(s -> s.getUser().getId()).toList());
+        assertEquals(List.of(2, 1), suggestions.stream().map(FriendSuggestion::getMutualFriends).toList());
+        assertEquals(3, userRepository.getFriendSuggestions(user, 10).size());
+        assertTrue(userRepository.getFriendSuggestions(ids.get(5), 10).isEmpty());
+        assertThrows(NotFoundException.class, () -> userRepository.getFriendSuggestions(100L, 10));
+    }
+
     @Test
     void getMutualFriends() {
         User user1 = userRepository.create(createUser());